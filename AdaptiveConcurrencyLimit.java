@@ -0,0 +1,96 @@
+/**
+ * Concurrency limit for range requests that adapts to the server (AIMD).
+ *
+ * A fixed limit is either too low, and bulk lookups crawl, or too high,
+ * and the server answers 429 or 503. This limit starts at the maximum.
+ * Every successful request raises it by 1/limit, so it grows by one
+ * after a full window of successes. A request that signals overload (a
+ * throttling status or a response timeout) halves it. Only requests
+ * started after the last decrease can decrease it again, so one burst
+ * of rejected requests counts as a single congestion event rather than
+ * collapsing the limit to 1.
+ *
+ * A non-adaptive limit ignores the feedback and stays at the maximum.
+ */
+public class AdaptiveConcurrencyLimit {
+    private static final double BACKOFF_RATIO = 0.5;
+
+    private final int maxLimit;
+    private final boolean adaptive;
+
+    // Guarded by this
+    private double limit;
+    private int inFlight;
+    private long lastDecreaseAt = System.nanoTime();
+
+    /**
+     * @param maxLimit Upper bound for the limit, and its starting value
+     * @param adaptive False to keep the limit fixed at maxLimit
+     */
+    public AdaptiveConcurrencyLimit(int maxLimit, boolean adaptive) {
+        if (maxLimit < 1) {
+            throw new IllegalArgumentException("maxLimit must be at least 1");
+        }
+        this.maxLimit = maxLimit;
+        this.adaptive = adaptive;
+        this.limit = maxLimit;
+    }
+
+    /**
+     * Take a slot if fewer than the current limit are in use
+     * @return True if the request may start; it must then report back exactly once
+     */
+    public synchronized boolean tryAcquire() {
+        if (inFlight < (int) limit) {
+            inFlight++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Return a slot without feedback (cancelled, or failed for reasons unrelated to load)
+     */
+    public synchronized void release() {
+        inFlight--;
+    }
+
+    /**
+     * Return a slot after a successful request
+     */
+    public synchronized void onSuccess() {
+        inFlight--;
+        if (adaptive && limit < maxLimit) {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+
+    /**
+     * Return a slot after a request the server rejected or was too slow to answer
+     * @param startedAt System.nanoTime() when the request was sent
+     */
+    public synchronized void onOverload(long startedAt) {
+        inFlight--;
+        if (adaptive && startedAt - lastDecreaseAt > 0) {
+            limit = Math.max(1, limit * BACKOFF_RATIO);
+            lastDecreaseAt = System.nanoTime();
+        }
+    }
+
+    /**
+     * @return Current limit, rounded down as applied
+     */
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * @return Requests currently holding a slot
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public int getMaxLimit() { return maxLimit; }
+    public boolean isAdaptive() { return adaptive; }
+}
@@ -0,0 +1,332 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Aho-Corasick automaton over a fixed set of literal patterns.
+ *
+ * Patterns are compiled once into a trie with failure links. A scan then
+ * visits every character of the input exactly once and reports all patterns
+ * that occur anywhere in it, regardless of how many patterns were compiled.
+ * Each pattern carries a category (0-31); {@link #matchCategories} returns the
+ * categories of every match as a bitmask so callers can answer several
+ * questions from one pass.
+ *
+ * Transitions are stored as sorted edge arrays per state (compressed sparse
+ * rows), which keeps large pattern sets compact. The automaton is immutable
+ * and safe to share between threads.
+ */
+public class AhoCorasickMatcher {
+    private static final int ROOT = 0;
+
+    private final boolean ignoreCase;
+    private final String[] patterns;
+    private final int[] patternCategories;
+
+    // Edges of state s live in [edgeStart[s], edgeStart[s + 1]), sorted by label
+    private final int[] edgeStart;
+    private final char[] edgeLabel;
+    private final int[] edgeTarget;
+
+    private final int[] fail;
+    private final int[] outputMask;     // Categories of all patterns ending here
+    private final int[] terminal;       // Pattern ending exactly at this state, or -1
+    private final int[] outputLink;     // Next state on the failure chain with a terminal, or -1
+
+    /**
+     * Callback for {@link #forEachMatch}
+     */
+    public interface MatchListener {
+        /**
+         * @param patternId Index of the matched pattern
+         * @param end Index one past the last matched character
+         */
+        void onMatch(int patternId, int end);
+    }
+
+    private AhoCorasickMatcher(Builder builder) {
+        this.ignoreCase = builder.ignoreCase;
+        this.patterns = builder.patterns.toArray(new String[0]);
+        this.patternCategories = Arrays.copyOf(builder.categories, patterns.length);
+
+        // Build a pointer trie first, then flatten it breadth-first
+        int capacity = 16;
+        int[] firstChild = new int[capacity];
+        int[] nextSibling = new int[capacity];
+        char[] label = new char[capacity];
+        int[] term = new int[capacity];
+        Arrays.fill(firstChild, -1);
+        Arrays.fill(term, -1);
+        int nodes = 1;
+
+        for (int p = 0; p < patterns.length; p++) {
+            String pattern = patterns[p];
+            int node = ROOT;
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = fold(pattern.charAt(i));
+                int child = firstChild[node];
+                while (child != -1 && label[child] != c) {
+                    child = nextSibling[child];
+                }
+                if (child == -1) {
+                    if (nodes == capacity) {
+                        capacity *= 2;
+                        firstChild = Arrays.copyOf(firstChild, capacity);
+                        nextSibling = Arrays.copyOf(nextSibling, capacity);
+                        label = Arrays.copyOf(label, capacity);
+                        term = Arrays.copyOf(term, capacity);
+                        Arrays.fill(firstChild, nodes, capacity, -1);
+                        Arrays.fill(term, nodes, capacity, -1);
+                    }
+                    child = nodes++;
+                    label[child] = c;
+                    nextSibling[child] = firstChild[node];
+                    firstChild[node] = child;
+                }
+                node = child;
+            }
+            if (term[node] == -1) {
+                term[node] = p;
+            }
+        }
+
+        // Breadth-first renumbering: parents precede children, so failure
+        // links can be computed in a single forward sweep
+        int[] order = new int[nodes];
+        int[] newId = new int[nodes];
+        int head = 0;
+        int tail = 0;
+        order[tail++] = ROOT;
+        int edges = 0;
+        edgeStart = new int[nodes + 1];
+        while (head < tail) {
+            int node = order[head];
+            newId[node] = head;
+            head++;
+            int childCount = 0;
+            for (int child = firstChild[node]; child != -1; child = nextSibling[child]) {
+                childCount++;
+            }
+            int[] children = new int[childCount];
+            int k = 0;
+            for (int child = firstChild[node]; child != -1; child = nextSibling[child]) {
+                children[k++] = child;
+            }
+            sortByLabel(children, label);
+            for (int child : children) {
+                order[tail++] = child;
+            }
+            edgeStart[newId[node] + 1] = edgeStart[newId[node]] + childCount;
+            edges += childCount;
+        }
+
+        edgeLabel = new char[edges];
+        edgeTarget = new int[edges];
+        terminal = new int[nodes];
+        outputMask = new int[nodes];
+        for (int i = 0; i < nodes; i++) {
+            terminal[i] = term[order[i]];
+        }
+        // Children of each node occupy consecutive BFS slots in label order
+        int nextChild = 1;
+        for (int i = 0; i < nodes; i++) {
+            for (int e = edgeStart[i]; e < edgeStart[i + 1]; e++) {
+                edgeLabel[e] = label[order[nextChild]];
+                edgeTarget[e] = nextChild;
+                nextChild++;
+            }
+        }
+        // Duplicate patterns share a state, so merge all of their categories
+        for (int p = 0; p < patterns.length; p++) {
+            int state = walk(patterns[p]);
+            outputMask[state] |= 1 << patternCategories[p];
+        }
+
+        fail = new int[nodes];
+        outputLink = new int[nodes];
+        outputLink[ROOT] = -1;
+        for (int s = 0; s < nodes; s++) {
+            for (int e = edgeStart[s]; e < edgeStart[s + 1]; e++) {
+                int child = edgeTarget[e];
+                int f = ROOT;
+                if (s != ROOT) {
+                    f = fail[s];
+                    int next;
+                    while ((next = edge(f, edgeLabel[e])) == -1 && f != ROOT) {
+                        f = fail[f];
+                    }
+                    f = next == -1 ? ROOT : next;
+                }
+                fail[child] = f;
+                outputMask[child] |= outputMask[f];
+                outputLink[child] = terminal[f] != -1 ? f : outputLink[f];
+            }
+        }
+    }
+
+    private static void sortByLabel(int[] nodes, char[] label) {
+        // Insertion sort: sibling lists are short
+        for (int i = 1; i < nodes.length; i++) {
+            int node = nodes[i];
+            int j = i - 1;
+            while (j >= 0 && label[nodes[j]] > label[node]) {
+                nodes[j + 1] = nodes[j];
+                j--;
+            }
+            nodes[j + 1] = node;
+        }
+    }
+
+    private int walk(String pattern) {
+        int state = ROOT;
+        for (int i = 0; i < pattern.length(); i++) {
+            state = edge(state, fold(pattern.charAt(i)));
+        }
+        return state;
+    }
+
+    private char fold(char c) {
+        return ignoreCase ? Character.toLowerCase(c) : c;
+    }
+
+    private int edge(int state, char c) {
+        int lo = edgeStart[state];
+        int hi = edgeStart[state + 1] - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            char l = edgeLabel[mid];
+            if (l < c) lo = mid + 1;
+            else if (l > c) hi = mid - 1;
+            else return edgeTarget[mid];
+        }
+        return -1;
+    }
+
+    /**
+     * Advance the automaton by one character
+     * @param state Current state (0 is the start state)
+     * @param c Next input character
+     * @return The new state
+     */
+    public int step(int state, char c) {
+        c = fold(c);
+        int next;
+        while ((next = edge(state, c)) == -1 && state != ROOT) {
+            state = fail[state];
+        }
+        return next == -1 ? ROOT : next;
+    }
+
+    /**
+     * Categories of all patterns ending at a state
+     * @param state A state returned by {@link #step}
+     * @return Bitmask with bit n set for category n
+     */
+    public int outputCategories(int state) {
+        return outputMask[state];
+    }
+
+    /**
+     * Scan the text once and collect the categories of every pattern found
+     * @param text The text to scan
+     * @return Bitmask with bit n set when a pattern of category n occurs
+     */
+    public int matchCategories(CharSequence text) {
+        int state = ROOT;
+        int mask = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = step(state, text.charAt(i));
+            mask |= outputMask[state];
+        }
+        return mask;
+    }
+
+    /**
+     * Scan the text once and report every pattern occurrence
+     * @param text The text to scan
+     * @param listener Receives each match, in order of end position
+     */
+    public void forEachMatch(CharSequence text, MatchListener listener) {
+        int state = ROOT;
+        for (int i = 0; i < text.length(); i++) {
+            state = step(state, text.charAt(i));
+            if (outputMask[state] != 0) {
+                forEachOutput(state, i + 1, listener);
+            }
+        }
+    }
+
+    /**
+     * Report every pattern ending at a state, for callers that drive {@link #step} themselves
+     * @param state A state returned by {@link #step}
+     * @param end Index one past the character that led to this state, passed through to the listener
+     * @param listener Receives each pattern ending here
+     */
+    public void forEachOutput(int state, int end, MatchListener listener) {
+        int s = terminal[state] != -1 ? state : outputLink[state];
+        while (s != -1) {
+            listener.onMatch(terminal[s], end);
+            s = outputLink[s];
+        }
+    }
+
+    /**
+     * List the distinct patterns found in the text
+     * @param text The text to scan
+     * @return Matched patterns in order of first occurrence
+     */
+    public List<String> findPatterns(CharSequence text) {
+        List<String> found = new ArrayList<>();
+        boolean[] seen = new boolean[patterns.length];
+        forEachMatch(text, (patternId, end) -> {
+            if (!seen[patternId]) {
+                seen[patternId] = true;
+                found.add(patterns[patternId]);
+            }
+        });
+        return found;
+    }
+
+    public String getPattern(int patternId) { return patterns[patternId]; }
+    public int getCategory(int patternId) { return patternCategories[patternId]; }
+    public int getPatternCount() { return patterns.length; }
+    public int getStateCount() { return fail.length; }
+
+    /**
+     * Collects patterns before compiling them into an automaton
+     */
+    public static class Builder {
+        private final boolean ignoreCase;
+        private final List<String> patterns = new ArrayList<>();
+        private int[] categories = new int[16];
+
+        public Builder(boolean ignoreCase) {
+            this.ignoreCase = ignoreCase;
+        }
+
+        /**
+         * Add a pattern
+         * @param pattern Non-empty literal to search for
+         * @param category Category number between 0 and 31
+         * @return This builder
+         */
+        public Builder add(String pattern, int category) {
+            if (pattern == null || pattern.isEmpty()) {
+                throw new IllegalArgumentException("Pattern must not be empty");
+            }
+            if (category < 0 || category > 31) {
+                throw new IllegalArgumentException("Category must be between 0 and 31: " + category);
+            }
+            if (patterns.size() == categories.length) {
+                categories = Arrays.copyOf(categories, categories.length * 2);
+            }
+            categories[patterns.size()] = category;
+            patterns.add(pattern);
+            return this;
+        }
+
+        public AhoCorasickMatcher build() {
+            return new AhoCorasickMatcher(this);
+        }
+    }
+}
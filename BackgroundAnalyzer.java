@@ -0,0 +1,105 @@
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Runs strength analysis for text that is still being typed, off the UI thread.
+ *
+ * One worker thread owns an {@link IncrementalAnalysis}. Each {@link #submit}
+ * replaces the input waiting for the worker, so when typing outpaces the
+ * analysis the intermediate inputs are skipped and only the newest is
+ * computed. Results are handed to the delivery executor (the UI thread) the
+ * same way: at most one delivery is queued at a time, and it carries the
+ * newest finished result. The UI thread therefore never waits for an
+ * analysis, and a burst of keystrokes costs it one update rather than one
+ * per key.
+ *
+ * Every result is still delivered, even if newer input is queued, so the
+ * display keeps up during continuous typing instead of freezing until it
+ * stops.
+ */
+public class BackgroundAnalyzer implements AutoCloseable {
+    private static final LongAdder SKIPPED = Metrics.global().counter(
+            "analysis_skipped", "Inputs replaced by newer input before the analysis worker reached them");
+
+    private final IncrementalAnalysis analysis;
+    private final Executor delivery;
+    private final ExecutorService worker;
+
+    // Newest input not yet taken by the worker, and newest result not yet delivered
+    private final AtomicReference<Request> pending = new AtomicReference<>();
+    private final AtomicReference<Request> finished = new AtomicReference<>();
+    private long submitted;
+    private long applied;
+    private volatile boolean closed;
+
+    private static final class Request {
+        final long sequence;
+        final String password;
+        final Consumer<PasswordAnalysisResult> callback;
+        PasswordAnalysisResult result;
+
+        Request(long sequence, String password, Consumer<PasswordAnalysisResult> callback) {
+            this.sequence = sequence;
+            this.password = password;
+            this.callback = callback;
+        }
+    }
+
+    /**
+     * @param analyzer Analyzer whose dictionaries and scoring are used
+     * @param delivery Executor results are delivered on, e.g. Platform::runLater
+     */
+    public BackgroundAnalyzer(PasswordStrengthAnalyzer analyzer, Executor delivery) {
+        this.analysis = new IncrementalAnalysis(analyzer);
+        this.delivery = delivery;
+        this.worker = Executors.newSingleThreadExecutor(BreachLookupExecutor.daemonThreads("analysis"));
+    }
+
+    /**
+     * Queue the latest input for analysis, replacing any input still waiting.
+     * Call from the delivery thread.
+     * @param password The current input
+     * @param callback Receives the result on the delivery executor, unless a
+     *                 newer result has already been delivered
+     */
+    public void submit(String password, Consumer<PasswordAnalysisResult> callback) {
+        Request previous = pending.getAndSet(new Request(++submitted, password, callback));
+        if (previous == null) {
+            worker.execute(this::analyzeLatest);
+        } else {
+            SKIPPED.increment();
+        }
+    }
+
+    // Every submit that finds the slot empty queues one of these, so a waiting input is always picked up
+    private void analyzeLatest() {
+        Request request = pending.getAndSet(null);
+        if (request == null || closed) {
+            return;
+        }
+        request.result = analysis.update(request.password);
+        if (finished.getAndSet(request) == null) {
+            delivery.execute(this::deliverLatest);
+        }
+    }
+
+    private void deliverLatest() {
+        Request request = finished.getAndSet(null);
+        // Sequence check guards against a delivery executor that reorders tasks
+        if (request == null || closed || request.sequence <= applied) {
+            return;
+        }
+        applied = request.sequence;
+        request.callback.accept(request.result);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        worker.shutdownNow();
+    }
+}
@@ -0,0 +1,69 @@
+/**
+ * Outcome of {@link HIBPClient#getBreachInfoAll}: one answer per input
+ * password, in input order, and how many upstream requests it took
+ */
+public class BatchBreachResult {
+    private final BreachInfo[] results;
+    private final int prefixes;
+    private final long rangeLookups;
+    private final long upstreamRequests;
+    private final long cacheHits;
+    private final long filtered;
+    private final long failed;
+
+    BatchBreachResult(BreachInfo[] results, int prefixes, long rangeLookups, long upstreamRequests,
+                      long cacheHits, long filtered, long failed) {
+        this.results = results;
+        this.prefixes = prefixes;
+        this.rangeLookups = rangeLookups;
+        this.upstreamRequests = upstreamRequests;
+        this.cacheHits = cacheHits;
+        this.filtered = filtered;
+        this.failed = failed;
+    }
+
+    /**
+     * @param index Position of the password in the input list
+     * @return Its breach information, or null if its range could not be fetched
+     */
+    public BreachInfo get(int index) { return results[index]; }
+
+    public int size() { return results.length; }
+
+    /**
+     * @return Distinct 5-digit prefixes among the non-empty inputs
+     */
+    public int getPrefixes() { return prefixes; }
+
+    /**
+     * @return Passwords that needed a range, i.e. the requests a per-password loop would make
+     */
+    public long getRangeLookups() { return rangeLookups; }
+
+    /**
+     * @return Range requests this batch sent, retries included. A prefix
+     *         answered by another caller's fetch, or cached meanwhile, adds none.
+     */
+    public long getUpstreamRequests() { return upstreamRequests; }
+
+    /**
+     * @return Prefixes answered from the range cache
+     */
+    public long getCacheHits() { return cacheHits; }
+
+    /**
+     * @return Passwords the pre-filter ruled out without a range
+     */
+    public long getFiltered() { return filtered; }
+
+    /**
+     * @return Passwords left without an answer because their range failed
+     */
+    public long getFailed() { return failed; }
+
+    /**
+     * @return Upstream requests saved compared with one request per password;
+     *         negative if retries outnumbered the requests grouping saved
+     */
+    public long getSavedRequests() { return rangeLookups - upstreamRequests; }
+}
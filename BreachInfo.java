@@ -0,0 +1,13 @@
+// Breach information class
+public class BreachInfo {
+    private final boolean pwned;
+    private final int occurrenceCount;
+    
+    public BreachInfo(boolean pwned, int occurrenceCount) {
+        this.pwned = pwned;
+        this.occurrenceCount = occurrenceCount;
+    }
+    
+    public boolean isPwned() { return pwned; }
+    public int getOccurrenceCount() { return occurrenceCount; }
+}
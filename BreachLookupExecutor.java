@@ -0,0 +1,232 @@
+import java.lang.reflect.InvocationTargetException;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded executor for blocking breach lookups.
+ *
+ * Lookups block on the network for up to the transport's timeouts, so they
+ * must not run on a shared pool such as ForkJoinPool.commonPool, where they
+ * would starve unrelated CPU work. Here at most maxConcurrent lookups run
+ * at once, on threads from a pluggable executor (a fixed platform pool or
+ * a virtual thread per task). Up to queueCapacity more wait in a FIFO
+ * queue without holding a thread. Beyond that, submissions fail at once
+ * with a RejectedExecutionException instead of piling up.
+ *
+ * Cancelling a returned future removes a queued task, or interrupts a
+ * running one. The interrupt reaches the HTTP exchange, which is then
+ * abandoned.
+ */
+public class BreachLookupExecutor implements AutoCloseable {
+    public static final int DEFAULT_MAX_CONCURRENT = 16;
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    // Time from submission until a thread picks the lookup up
+    private static final LatencyHistogram WAIT_LATENCY = Metrics.global().histogram("executor");
+    private static final LongAdder REJECTED = Metrics.global().counter(
+            "breach_executor_rejected", "Async breach lookups refused because the queue was full");
+
+    private final ExecutorService threads;
+    private final int maxConcurrent;
+    private final int queueCapacity;
+
+    private final Semaphore permits;
+    private final Queue<Runnable> waiting = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private volatile boolean closed;
+
+    /**
+     * @param threads Executor the lookups run on; it should not queue tasks of its own
+     * @param maxConcurrent Maximum lookups running at once
+     * @param queueCapacity Maximum lookups waiting for a turn
+     */
+    public BreachLookupExecutor(ExecutorService threads, int maxConcurrent, int queueCapacity) {
+        if (maxConcurrent < 1 || queueCapacity < 0) {
+            throw new IllegalArgumentException("maxConcurrent must be at least 1 and queueCapacity not negative");
+        }
+        this.threads = threads;
+        this.maxConcurrent = maxConcurrent;
+        this.queueCapacity = queueCapacity;
+        this.permits = new Semaphore(maxConcurrent);
+    }
+
+    /**
+     * Create an executor from the hibp.async.maxConcurrent,
+     * hibp.async.queueCapacity and hibp.async.virtualThreads system
+     * properties. Virtual threads are used by default where the runtime
+     * has them.
+     * @return Configured executor
+     */
+    public static BreachLookupExecutor fromConfiguration() {
+        int maxConcurrent = Integer.getInteger("hibp.async.maxConcurrent", DEFAULT_MAX_CONCURRENT);
+        boolean virtual = Boolean.parseBoolean(System.getProperty("hibp.async.virtualThreads", "true"));
+        ExecutorService threads = virtual ? virtualThreadsOr(maxConcurrent, "breach-async")
+                                          : Executors.newFixedThreadPool(maxConcurrent,
+                                                    daemonThreads("breach-async"));
+        return new BreachLookupExecutor(threads, maxConcurrent,
+                                        Integer.getInteger("hibp.async.queueCapacity", DEFAULT_QUEUE_CAPACITY));
+    }
+
+    /**
+     * An executor that starts a virtual thread per task where the runtime
+     * supports it, otherwise a fixed pool of daemon platform threads. Looked
+     * up reflectively so the code still compiles for Java 11.
+     * @param platformThreads Pool size for the fallback
+     * @param name Thread name prefix for the fallback
+     * @return The executor
+     */
+    static ExecutorService virtualThreadsOr(int platformThreads, String name) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            // Before Java 19
+        } catch (InvocationTargetException e) {
+            // Java 19 and 20 without --enable-preview
+        }
+        return Executors.newFixedThreadPool(platformThreads, daemonThreads(name));
+    }
+
+    /**
+     * Thread factory for background pools that must not keep the JVM alive
+     * @param name Thread name prefix; threads are numbered from 1
+     * @return The factory
+     */
+    static ThreadFactory daemonThreads(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Run a lookup once a slot is free
+     * @param lookup The blocking lookup
+     * @return Future completed with the lookup's result or exception; cancel
+     *         it (or let a timeout complete it) to abandon the lookup
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> lookup) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        if (closed) {
+            result.completeExceptionally(new RejectedExecutionException("Breach lookup executor is closed"));
+            return result;
+        }
+        // Counted as waiting until dispatched, even when a slot is free right away
+        if (queued.incrementAndGet() > queueCapacity && permits.availablePermits() == 0) {
+            queued.decrementAndGet();
+            REJECTED.increment();
+            result.completeExceptionally(new RejectedExecutionException(
+                    "Breach lookup queue is full (" + queueCapacity + " waiting)"));
+            return result;
+        }
+
+        long queuedAt = System.nanoTime();
+        FutureTask<T> task = new FutureTask<T>(lookup) {
+            @Override
+            protected void done() {
+                try {
+                    result.complete(get());
+                } catch (ExecutionException e) {
+                    result.completeExceptionally(e.getCause());
+                } catch (CancellationException | InterruptedException e) {
+                    // Only cancelled through result, which is already complete
+                }
+            }
+        };
+        Runnable start = () -> {
+            WAIT_LATENCY.recordSince(queuedAt);
+            try {
+                threads.execute(() -> {
+                    try {
+                        if (closed) {
+                            result.completeExceptionally(new RejectedExecutionException(
+                                    "Breach lookup executor is closed"));
+                        } else {
+                            task.run();
+                        }
+                    } finally {
+                        release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // Closed: the dispatch loop moves on to the next waiting lookup
+                permits.release();
+                result.completeExceptionally(e);
+            }
+        };
+        waiting.add(start);
+        // Cancellation or a timeout abandons the task, whether queued or running
+        result.whenComplete((value, error) -> {
+            if (!task.isDone()) {
+                if (waiting.remove(start)) {
+                    queued.decrementAndGet();
+                }
+                task.cancel(true);
+            }
+        });
+        dispatch();
+        return result;
+    }
+
+    private void release() {
+        permits.release();
+        dispatch();
+    }
+
+    // Start queued lookups while permits are available
+    private void dispatch() {
+        while (!waiting.isEmpty() && permits.tryAcquire()) {
+            Runnable next = waiting.poll();
+            if (next == null) {
+                // Another thread took it; hand the permit back and re-check
+                permits.release();
+                continue;
+            }
+            queued.decrementAndGet();
+            next.run();
+        }
+    }
+
+    public int getMaxConcurrent() { return maxConcurrent; }
+    public int getQueueCapacity() { return queueCapacity; }
+
+    /**
+     * @return Number of lookups currently running
+     */
+    public int getActive() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    /**
+     * @return Number of lookups waiting for a free slot
+     */
+    public int getQueued() {
+        return queued.get();
+    }
+
+    /**
+     * Refuse new lookups, fail waiting ones and interrupt running ones
+     */
+    @Override
+    public void close() {
+        closed = true;
+        // Lookups the thread executor had not started yet only fail and release their slot
+        for (Runnable unstarted : threads.shutdownNow()) {
+            unstarted.run();
+        }
+        dispatch();
+    }
+}
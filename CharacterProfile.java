@@ -0,0 +1,306 @@
+import java.util.Arrays;
+
+/**
+ * Single-pass character profile of a password.
+ *
+ * One linear scan over the chars collects everything the strength analyzer
+ * needs: character class flags, the character set size, whether a character
+ * repeats three times in a row, and the frequency histogram used for entropy.
+ * Replaces the per-check regex matching the analyzer used to do.
+ *
+ * Instances are reusable: {@link #reset(CharSequence)} rescans into the same
+ * primitive count tables, so profiling a password does not allocate once the
+ * tables are warm. {@link #append} and {@link #removeLast} update the
+ * profile for a password edited at its end without rescanning it. The
+ * result is identical to a fresh scan, entropy included. Instances are
+ * not thread-safe; keep one per thread.
+ */
+public class CharacterProfile {
+    private static final int ASCII_RANGE = 128;
+    private static final int INITIAL_OTHER_CAPACITY = 16;
+
+    // log2(n) and n * log2(n) for small n, so entropy needs no Math.log calls
+    private static final int LOG2_TABLE_SIZE = 1024;
+    private static final double[] LOG2 = new double[LOG2_TABLE_SIZE];
+    private static final double[] N_LOG2_N = new double[LOG2_TABLE_SIZE];
+    static {
+        for (int n = 1; n < LOG2_TABLE_SIZE; n++) {
+            LOG2[n] = Math.log(n) / Math.log(2);
+            N_LOG2_N[n] = n * LOG2[n];
+        }
+    }
+
+    private static final int NO_REPEAT = Integer.MAX_VALUE;
+
+    private int length;
+    // Counts rather than flags, so removing a character can clear a class
+    private int lowerCount;
+    private int upperCount;
+    private int digitCount;
+    private int specialCount;
+    // Index of the first character that completes three in a row
+    private int firstRepeat = NO_REPEAT;
+
+    // Dense counts for ASCII plus the list of slots touched by the last scan
+    private final int[] asciiCounts = new int[ASCII_RANGE];
+    private final char[] asciiSeen = new char[ASCII_RANGE];
+    private int asciiDistinct;
+
+    // Open-addressed table for everything outside ASCII; key 0 marks an empty slot
+    private char[] otherKeys = new char[INITIAL_OTHER_CAPACITY];
+    private int[] otherCounts = new int[INITIAL_OTHER_CAPACITY];
+    private int otherDistinct;
+
+    /**
+     * Profile a password into a fresh instance
+     * @param password The password to profile (may be empty, not null)
+     * @return Profile holding class flags, repeat check and histogram
+     */
+    public static CharacterProfile of(CharSequence password) {
+        return new CharacterProfile().reset(password);
+    }
+
+    /**
+     * Rescan this profile for a new password, reusing the count tables
+     * @param password The password to profile (may be empty, not null)
+     * @return This profile
+     */
+    public CharacterProfile reset(CharSequence password) {
+        clearCounts();
+
+        int length = password.length();
+        int lower = 0;
+        int upper = 0;
+        int digit = 0;
+        int special = 0;
+        int firstRepeat = NO_REPEAT;
+
+        char prev2 = 0;
+        char prev1 = 0;
+        for (int i = 0; i < length; i++) {
+            char c = password.charAt(i);
+
+            if (c >= 'a' && c <= 'z') lower++;
+            else if (c >= 'A' && c <= 'Z') upper++;
+            else if (c >= '0' && c <= '9') digit++;
+            else special++;
+
+            // Three identical characters in a row
+            if (i >= 2 && c == prev1 && c == prev2 && firstRepeat == NO_REPEAT) {
+                firstRepeat = i;
+            }
+            prev2 = prev1;
+            prev1 = c;
+
+            if (c < ASCII_RANGE) {
+                if (asciiCounts[c]++ == 0) {
+                    asciiSeen[asciiDistinct++] = c;
+                }
+            } else {
+                incrementOther(c);
+            }
+        }
+
+        this.length = length;
+        this.lowerCount = lower;
+        this.upperCount = upper;
+        this.digitCount = digit;
+        this.specialCount = special;
+        this.firstRepeat = firstRepeat;
+        return this;
+    }
+
+    /**
+     * Extend the profile by one character, in constant time
+     * @param password The profiled password plus one character at the end
+     * @return This profile
+     */
+    public CharacterProfile append(CharSequence password) {
+        int i = length;
+        char c = password.charAt(i);
+        countClass(c, 1);
+        if (i >= 2 && firstRepeat == NO_REPEAT && c == password.charAt(i - 1) && c == password.charAt(i - 2)) {
+            firstRepeat = i;
+        }
+        if (c < ASCII_RANGE) {
+            if (asciiCounts[c]++ == 0) {
+                asciiSeen[asciiDistinct++] = c;
+            }
+        } else {
+            incrementOther(c);
+        }
+        length = i + 1;
+        return this;
+    }
+
+    /**
+     * Drop the last character from the profile, in constant time unless it
+     * is the last occurrence of a non-ASCII character
+     * @param password The profiled password, still including the character to drop
+     * @return This profile
+     */
+    public CharacterProfile removeLast(CharSequence password) {
+        int i = length - 1;
+        char c = password.charAt(i);
+        if (c >= ASCII_RANGE && otherCounts[otherSlot(c)] == 1) {
+            // Deleting from the probe table can reorder it, and with it the entropy sum's rounding
+            return reset(password.subSequence(0, i));
+        }
+        countClass(c, -1);
+        if (firstRepeat == i) {
+            firstRepeat = NO_REPEAT;
+        }
+        if (c < ASCII_RANGE) {
+            // Characters leave in reverse order of arrival, so one whose count
+            // reaches zero is always the newest entry in asciiSeen
+            if (--asciiCounts[c] == 0) {
+                asciiDistinct--;
+            }
+        } else {
+            otherCounts[otherSlot(c)]--;
+        }
+        length = i;
+        return this;
+    }
+
+    private void countClass(char c, int delta) {
+        if (c >= 'a' && c <= 'z') lowerCount += delta;
+        else if (c >= 'A' && c <= 'Z') upperCount += delta;
+        else if (c >= '0' && c <= '9') digitCount += delta;
+        else specialCount += delta;
+    }
+
+    private void clearCounts() {
+        for (int i = 0; i < asciiDistinct; i++) {
+            asciiCounts[asciiSeen[i]] = 0;
+        }
+        asciiDistinct = 0;
+        if (otherDistinct > 0) {
+            Arrays.fill(otherKeys, (char) 0);
+            Arrays.fill(otherCounts, 0);
+            otherDistinct = 0;
+        }
+    }
+
+    private int otherSlot(char c) {
+        int mask = otherKeys.length - 1;
+        int slot = (c * 0x9E3779B1 >>> 16) & mask;
+        while (otherKeys[slot] != c) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void incrementOther(char c) {
+        int mask = otherKeys.length - 1;
+        int slot = (c * 0x9E3779B1 >>> 16) & mask;
+        while (otherKeys[slot] != 0) {
+            if (otherKeys[slot] == c) {
+                otherCounts[slot]++;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        otherKeys[slot] = c;
+        otherCounts[slot] = 1;
+        // Keep the load factor at or below one half
+        if (++otherDistinct * 2 > otherKeys.length) {
+            growOther();
+        }
+    }
+
+    private void growOther() {
+        char[] oldKeys = otherKeys;
+        int[] oldCounts = otherCounts;
+        otherKeys = new char[oldKeys.length * 2];
+        otherCounts = new int[oldKeys.length * 2];
+        int mask = otherKeys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = (oldKeys[i] * 0x9E3779B1 >>> 16) & mask;
+                while (otherKeys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                otherKeys[slot] = oldKeys[i];
+                otherCounts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    /**
+     * Base-2 logarithm, served from a lookup table for small values
+     * @param n A positive integer
+     * @return log2(n)
+     */
+    public static double log2(int n) {
+        return n < LOG2_TABLE_SIZE ? LOG2[n] : Math.log(n) / Math.log(2);
+    }
+
+    private static double nLog2n(int n) {
+        return n < LOG2_TABLE_SIZE ? N_LOG2_N[n] : n * (Math.log(n) / Math.log(2));
+    }
+
+    /**
+     * Number of character classes used (lowercase, uppercase, digits, symbols)
+     * @return Value between 0 and 4
+     */
+    public int getCharacterTypes() {
+        int types = 0;
+        if (lowerCount > 0) types++;
+        if (upperCount > 0) types++;
+        if (digitCount > 0) types++;
+        if (specialCount > 0) types++;
+        return types;
+    }
+
+    /**
+     * Size of the character set implied by the classes in use
+     * @return Sum of the class sizes (26 + 26 + 10 + 32 at most)
+     */
+    public int getCharacterSetSize() {
+        int charsetSize = 0;
+        if (lowerCount > 0) charsetSize += 26;
+        if (upperCount > 0) charsetSize += 26;
+        if (digitCount > 0) charsetSize += 10;
+        if (specialCount > 0) charsetSize += 32; // Common special characters
+        return charsetSize;
+    }
+
+    /**
+     * Shannon entropy per character, computed from the frequency histogram.
+     * Uses -sum(p * log2 p) = log2(n) - sum(c * log2 c) / n with tabulated logs.
+     * @return Bits of entropy per character
+     */
+    public double getShannonEntropy() {
+        if (length == 0) {
+            return 0;
+        }
+        double sum = 0;
+        for (int i = 0; i < asciiDistinct; i++) {
+            sum += nLog2n(asciiCounts[asciiSeen[i]]);
+        }
+        if (otherDistinct > 0) {
+            for (int i = 0; i < otherKeys.length; i++) {
+                if (otherKeys[i] != 0) {
+                    sum += nLog2n(otherCounts[i]);
+                }
+            }
+        }
+        return log2(length) - sum / length;
+    }
+
+    /**
+     * Number of distinct characters in the profiled password
+     * @return Count of distinct UTF-16 code units
+     */
+    public int getDistinctCharacters() {
+        return asciiDistinct + otherDistinct;
+    }
+
+    public int getLength() { return length; }
+    public boolean hasLower() { return lowerCount > 0; }
+    public boolean hasUpper() { return upperCount > 0; }
+    public boolean hasDigit() { return digitCount > 0; }
+    public boolean hasSpecial() { return specialCount > 0; }
+    public boolean hasRepeatedCharacters() { return firstRepeat < length; }
+}
@@ -0,0 +1,163 @@
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Circuit breaker for calls to the range API.
+ *
+ * Without one, every lookup made while the network is down waits out the
+ * full connect timeout before failing, and a bulk audit pays that timeout
+ * once per password. The breaker counts consecutive failures. After
+ * failureThreshold of them it opens, and calls fail at once with an
+ * {@link OpenException} instead of reaching the network. Once the open
+ * period has passed, the breaker is half-open and lets one trial request
+ * through. If that request succeeds the breaker closes; if it fails, the
+ * open period starts again. Other calls keep failing fast while the trial
+ * is in flight.
+ *
+ * Wrap each network call as acquire, then onSuccess or onFailure, or
+ * onAbandoned if the caller gave up on it.
+ */
+public class CircuitBreaker {
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    public static final long DEFAULT_OPEN_MILLIS = 15000;
+
+    private static final LongAdder OPENED = Metrics.global().counter(
+            "breach_circuit_opened", "Times the breach API circuit breaker opened");
+    private static final LongAdder REJECTED = Metrics.global().counter(
+            "breach_circuit_rejected", "Range requests failed fast because the circuit breaker was open");
+
+    /**
+     * Breaker states, in the order of their gauge values
+     */
+    public enum State {
+        /** Requests go through; failures are being counted */
+        CLOSED,
+        /** One trial request is allowed through to test the API */
+        HALF_OPEN,
+        /** Requests fail without reaching the network */
+        OPEN
+    }
+
+    /**
+     * Thrown instead of making a request while the breaker is open
+     */
+    public static class OpenException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        private final long retryInMillis;
+
+        OpenException(int failures, long retryInMillis) {
+            super("Breach API unavailable after " + failures + " consecutive failures; "
+                  + (retryInMillis > 0 ? "retrying in " + (retryInMillis + 999) / 1000 + "s"
+                                       : "a trial request is in progress"));
+            this.retryInMillis = retryInMillis;
+        }
+
+        /**
+         * @return Time until the next trial request is allowed (0 if one is in progress)
+         */
+        public long getRetryInMillis() { return retryInMillis; }
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+
+    // Guarded by this; the breaker is touched once per network request, not per lookup
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    /**
+     * @param failureThreshold Consecutive failures that open the breaker (0 or less: never open)
+     * @param openMillis How long the breaker stays open before a trial request
+     */
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+    }
+
+    /**
+     * Create a breaker from the hibp.circuit.failureThreshold and
+     * hibp.circuit.openMillis system properties
+     * @return Configured breaker
+     */
+    public static CircuitBreaker fromConfiguration() {
+        return new CircuitBreaker(Integer.getInteger("hibp.circuit.failureThreshold", DEFAULT_FAILURE_THRESHOLD),
+                                  Long.getLong("hibp.circuit.openMillis", DEFAULT_OPEN_MILLIS));
+    }
+
+    /**
+     * Ask to make a request
+     * @throws OpenException if the breaker is open, or half-open with a trial already in flight
+     */
+    public synchronized void acquire() throws OpenException {
+        if (state == State.OPEN) {
+            long remaining = openedAt + openNanos - System.nanoTime();
+            if (remaining > 0) {
+                REJECTED.increment();
+                throw new OpenException(consecutiveFailures, TimeUnit.NANOSECONDS.toMillis(remaining));
+            }
+            state = State.HALF_OPEN;
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialInFlight) {
+                REJECTED.increment();
+                throw new OpenException(consecutiveFailures, 0);
+            }
+            trialInFlight = true;
+        }
+    }
+
+    /**
+     * Record a request that succeeded; closes the breaker
+     */
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        trialInFlight = false;
+        state = State.CLOSED;
+    }
+
+    /**
+     * Record a request that failed
+     */
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN
+                || state == State.CLOSED && failureThreshold > 0 && consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+            trialInFlight = false;
+            OPENED.increment();
+        }
+    }
+
+    /**
+     * Record a request the caller cancelled before it finished; it says
+     * nothing about the API, so a half-open breaker may try again
+     */
+    public synchronized void onAbandoned() {
+        trialInFlight = false;
+    }
+
+    /**
+     * @return The current state; an open breaker whose open period has passed reports HALF_OPEN
+     */
+    public synchronized State getState() {
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    /**
+     * @return Failures since the last success
+     */
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    public int getFailureThreshold() { return failureThreshold; }
+    public long getOpenMillis() { return TimeUnit.NANOSECONDS.toMillis(openNanos); }
+}
@@ -0,0 +1,115 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Common sequences and keyboard walks, compiled once into an Aho-Corasick
+ * automaton.
+ *
+ * A single case-insensitive scan of the password returns a category bitmask
+ * that answers both "does it contain a common pattern?" and "which kinds?".
+ * To recognise more sequences, add them to {@link #PATTERNS}; scan cost
+ * does not grow with the size of the list.
+ */
+public class CommonPatterns {
+    public static final int SEQUENTIAL_NUMBERS = 0;
+    public static final int SEQUENTIAL_LETTERS = 1;
+    public static final int KEYBOARD_PATTERN = 2;
+
+    // Display names, indexed by category
+    private static final String[] CATEGORY_NAMES = {
+        "Sequential numbers", "Sequential letters", "Keyboard pattern"
+    };
+
+    private static final Object[][] PATTERNS = {
+        {"1234", SEQUENTIAL_NUMBERS}, {"5678", SEQUENTIAL_NUMBERS},
+        {"9876", SEQUENTIAL_NUMBERS}, {"4321", SEQUENTIAL_NUMBERS},
+        {"abcd", SEQUENTIAL_LETTERS}, {"dcba", SEQUENTIAL_LETTERS},
+        {"qwerty", KEYBOARD_PATTERN}, {"asdf", KEYBOARD_PATTERN}, {"zxcv", KEYBOARD_PATTERN},
+        {"asdfgh", KEYBOARD_PATTERN}, {"zxcvbn", KEYBOARD_PATTERN}, {"qwertyuiop", KEYBOARD_PATTERN},
+        {"asdfghjkl", KEYBOARD_PATTERN}, {"zxcvbnm", KEYBOARD_PATTERN}
+    };
+
+    private static final AhoCorasickMatcher MATCHER = compile();
+
+    private static AhoCorasickMatcher compile() {
+        AhoCorasickMatcher.Builder builder = new AhoCorasickMatcher.Builder(true);
+        for (Object[] pattern : PATTERNS) {
+            builder.add((String) pattern[0], (Integer) pattern[1]);
+        }
+        return builder.build();
+    }
+
+    private CommonPatterns() {
+    }
+
+    /**
+     * Scan a password for all common patterns in one pass
+     * @param password The password to scan
+     * @return Bitmask of matched categories (0 if none)
+     */
+    public static int scan(CharSequence password) {
+        return MATCHER.matchCategories(password);
+    }
+
+    /**
+     * Incremental form of {@link #scan} for text edited at its end. It keeps
+     * the automaton state and the categories seen so far at every position,
+     * so appending or removing a character costs the same whatever the
+     * length of the text.
+     */
+    public static final class Scanner {
+        private int[] states = new int[32];
+        private int[] categories = new int[32];
+        private int length;
+
+        /**
+         * Scan one more character
+         * @param c The character appended to the text
+         */
+        public void append(char c) {
+            if (length == states.length) {
+                states = Arrays.copyOf(states, length * 2);
+                categories = Arrays.copyOf(categories, length * 2);
+            }
+            int state = MATCHER.step(length == 0 ? 0 : states[length - 1], c);
+            states[length] = state;
+            categories[length] = categories() | MATCHER.outputCategories(state);
+            length++;
+        }
+
+        /**
+         * Forget the characters after the first newLength
+         * @param newLength Length of the text that is kept
+         */
+        public void truncate(int newLength) {
+            length = newLength;
+        }
+
+        /**
+         * @return What {@link CommonPatterns#scan} returns for the text scanned so far
+         */
+        public int categories() {
+            return length == 0 ? 0 : categories[length - 1];
+        }
+    }
+
+    /**
+     * Append the display names of the matched categories
+     * @param categories Bitmask returned by {@link #scan}
+     * @param names List to append to, in category order
+     */
+    public static void addCategoryNames(int categories, List<String> names) {
+        for (int category = 0; category < CATEGORY_NAMES.length; category++) {
+            if ((categories & (1 << category)) != 0) {
+                names.add(CATEGORY_NAMES[category]);
+            }
+        }
+    }
+
+    /**
+     * @return The compiled automaton, for callers that need individual matches
+     */
+    public static AhoCorasickMatcher getMatcher() {
+        return MATCHER;
+    }
+}
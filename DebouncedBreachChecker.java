@@ -0,0 +1,103 @@
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * Runs breach checks for text that is still being typed.
+ *
+ * Each {@link #submit} supersedes the previous one. The lookup only starts
+ * once the input has been stable for the debounce window. A superseded
+ * check that is already running is cancelled. Results are handed to the
+ * delivery executor (the UI thread) and applied only if no newer input has
+ * arrived, so a slow response for an old prefix can never overwrite the
+ * result for the current one. Lookups run on the client's bounded lookup
+ * executor.
+ *
+ * Call {@link #submit} and {@link #cancel} from the delivery thread.
+ */
+public class DebouncedBreachChecker implements AutoCloseable {
+    private final HIBPClient client;
+    private final long debounceMillis;
+    private final Executor delivery;
+    private final ScheduledExecutorService timer;
+
+    // Incremented for every new input; only the latest generation may deliver
+    private final AtomicLong generation = new AtomicLong();
+    private Future<?> pendingTimer;
+    private volatile CompletableFuture<BreachInfo> inFlight;
+
+    /**
+     * @param client Client used for the lookups
+     * @param debounceMillis Quiet period before a lookup starts
+     * @param delivery Executor results are delivered on, e.g. Platform::runLater
+     */
+    public DebouncedBreachChecker(HIBPClient client, long debounceMillis, Executor delivery) {
+        this.client = client;
+        this.debounceMillis = debounceMillis;
+        this.delivery = delivery;
+        this.timer = Executors.newSingleThreadScheduledExecutor(BreachLookupExecutor.daemonThreads("breach-debounce"));
+    }
+
+    /**
+     * Schedule a breach check for the latest input, replacing any pending or running one
+     * @param password The current input
+     * @param callback Receives (info, null) on success or (null, error) on failure,
+     *                 on the delivery executor, only if this is still the latest input
+     */
+    public void submit(String password, BiConsumer<BreachInfo, Throwable> callback) {
+        long token = supersede();
+        pendingTimer = timer.schedule(() -> {
+            if (token != generation.get()) {
+                return;
+            }
+            CompletableFuture<BreachInfo> lookup = client.getPasswordBreachInfoAsync(password);
+            inFlight = lookup;
+            // A supersede between the check above and publishing the lookup missed it
+            if (token != generation.get()) {
+                lookup.cancel(true);
+                return;
+            }
+            lookup.whenComplete((info, error) -> {
+                if (token != generation.get()) {
+                    return;
+                }
+                delivery.execute(() -> {
+                    // Re-check on the delivery thread: newer input may have arrived meanwhile
+                    if (token == generation.get()) {
+                        callback.accept(info, error);
+                    }
+                });
+            });
+        }, debounceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Drop any pending or running check without scheduling a new one
+     */
+    public void cancel() {
+        supersede();
+    }
+
+    private long supersede() {
+        long token = generation.incrementAndGet();
+        if (pendingTimer != null) {
+            pendingTimer.cancel(false);
+        }
+        CompletableFuture<BreachInfo> running = inFlight;
+        if (running != null) {
+            running.cancel(true);
+        }
+        return token;
+    }
+
+    @Override
+    public void close() {
+        cancel();
+        timer.shutdownNow();
+    }
+}
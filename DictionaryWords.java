@@ -0,0 +1,309 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds dictionary words anywhere inside a password, including leetspeak
+ * spellings such as "p@ssw0rd" or "dr4g0n".
+ *
+ * Words and password characters are both folded to a canonical form:
+ * lower case, with common substitutions mapped back to letters (0 to o,
+ * 3 to e, @ and 4 to a, $ and 5 to s, 1 and ! to i, 7 to t, and l to i,
+ * since 1 stands for either). The folded words are compiled into one
+ * {@link AhoCorasickMatcher}, so a scan visits each password character
+ * once, whatever the number of words.
+ *
+ * A match counts as a substitution only if the password used a symbol or
+ * digit where the word has a letter. "123456" inside a password is a plain
+ * dictionary word, but "passw0rd" is a substituted "password".
+ */
+public class DictionaryWords {
+    public static final int PLAIN = 0;
+    public static final int SUBSTITUTED = 1;
+
+    // Display names, indexed by category
+    private static final String[] CATEGORY_NAMES = {
+        "Dictionary word", "Dictionary word with substitutions"
+    };
+
+    // Shorter words match inside too many unrelated passwords
+    public static final int MIN_WORD_LENGTH = 4;
+
+    // Words people build passwords around, beyond the whole weak passwords:
+    // names, seasons, sports, pets and the like from cracked-password lists.
+    // "troubador" is the xkcd spelling behind "Tr0ub4dor&3".
+    static final String[] BASE_WORDS = {
+        "troubadour", "troubador", "summer", "winter", "spring", "autumn",
+        "flower", "tiger", "secret", "purple", "orange", "banana", "cookie",
+        "pepper", "ginger", "silver", "golden", "diamond", "heaven", "angel",
+        "forever", "friend", "family", "soccer", "hockey", "batman", "spider",
+        "pokemon", "starwars", "matrix", "hunter", "ranger", "buster", "thunder",
+        "killer", "computer", "internet", "cheese", "chocolate", "butterfly",
+        "jessica", "ashley", "jennifer", "thomas", "robert", "daniel", "andrew",
+        "joshua", "matthew", "george", "michelle", "nicole", "samsung", "google"
+    };
+
+    // Canonical form of every ASCII character; others are only lower-cased
+    private static final char[] FOLD = new char[128];
+    // Digits and symbols that stand in for a letter
+    private static final boolean[] SUBSTITUTE = new boolean[128];
+    static {
+        for (char c = 0; c < 128; c++) {
+            FOLD[c] = Character.toLowerCase(c);
+        }
+        FOLD['0'] = 'o';
+        FOLD['1'] = 'i';
+        FOLD['!'] = 'i';
+        FOLD['l'] = 'i';
+        FOLD['L'] = 'i';
+        FOLD['3'] = 'e';
+        FOLD['4'] = 'a';
+        FOLD['@'] = 'a';
+        FOLD['5'] = 's';
+        FOLD['$'] = 's';
+        FOLD['7'] = 't';
+        for (char c = 0; c < 128; c++) {
+            SUBSTITUTE[c] = !Character.isLetter(c) && Character.isLetter(FOLD[c]);
+        }
+    }
+
+    private final AhoCorasickMatcher matcher;
+    private final int[] wordLengths;
+    // Bit k set when the word itself has a substitution character k places before its end
+    private final long[] wordSubstitutions;
+
+    private DictionaryWords(AhoCorasickMatcher matcher, int[] wordLengths, long[] wordSubstitutions) {
+        this.matcher = matcher;
+        this.wordLengths = wordLengths;
+        this.wordSubstitutions = wordSubstitutions;
+    }
+
+    /**
+     * @return Matcher for the built-in common weak passwords and base words
+     */
+    public static DictionaryWords builtIn() {
+        List<String> words = new ArrayList<>(Arrays.asList(WeakPasswordDictionary.BUILT_IN));
+        words.addAll(Arrays.asList(BASE_WORDS));
+        return of(words);
+    }
+
+    /**
+     * Compile a matcher for a list of words; words shorter than
+     * {@link #MIN_WORD_LENGTH} are skipped
+     * @param words The dictionary words
+     * @return The matcher
+     */
+    public static DictionaryWords of(Iterable<? extends CharSequence> words) {
+        Map<String, Integer> ids = new HashMap<>();
+        AhoCorasickMatcher.Builder builder = new AhoCorasickMatcher.Builder(false);
+        int[] lengths = new int[16];
+        long[] substitutions = new long[16];
+        StringBuilder folded = new StringBuilder();
+        for (CharSequence word : words) {
+            if (word.length() < MIN_WORD_LENGTH) {
+                continue;
+            }
+            folded.setLength(0);
+            long substituted = 0;
+            for (int i = 0; i < word.length(); i++) {
+                char c = word.charAt(i);
+                folded.append(fold(c));
+                substituted = (substituted << 1) | (isSubstitution(c) ? 1 : 0);
+            }
+            String key = folded.toString();
+            Integer id = ids.get(key);
+            if (id == null) {
+                id = ids.size();
+                ids.put(key, id);
+                builder.add(key, 0);
+                if (id == lengths.length) {
+                    lengths = Arrays.copyOf(lengths, id * 2);
+                    substitutions = Arrays.copyOf(substitutions, id * 2);
+                }
+                lengths[id] = key.length();
+            }
+            // Spellings that fold to the same word: any of them counts as plain
+            substitutions[id] |= substituted;
+        }
+        return new DictionaryWords(builder.build(), Arrays.copyOf(lengths, ids.size()),
+                                   Arrays.copyOf(substitutions, ids.size()));
+    }
+
+    /**
+     * Compile a matcher from a word list file
+     * @param wordList One word per line, UTF-8
+     * @return The matcher
+     * @throws IOException if the file cannot be read
+     */
+    public static DictionaryWords load(Path wordList) throws IOException {
+        List<String> words = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(wordList, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                words.add(line);
+            }
+        }
+        return of(words);
+    }
+
+    /**
+     * Load the word list named by the {@code weak.substrings} system property
+     * or the {@code WEAK_SUBSTRINGS} environment variable
+     * @return The configured matcher, or the built-in list if none is set or it cannot be read
+     */
+    public static DictionaryWords fromConfiguration() {
+        String location = System.getProperty("weak.substrings", System.getenv("WEAK_SUBSTRINGS"));
+        if (location == null || location.isEmpty()) {
+            return builtIn();
+        }
+        try {
+            return load(Paths.get(location));
+        } catch (IOException e) {
+            System.err.println("Unable to load dictionary word list, using built-in list: " + e.getMessage());
+            return builtIn();
+        }
+    }
+
+    private static char fold(char c) {
+        return c < 128 ? FOLD[c] : Character.toLowerCase(c);
+    }
+
+    private static boolean isSubstitution(char c) {
+        return c < 128 && SUBSTITUTE[c];
+    }
+
+    /**
+     * Scan a password once for every dictionary word it contains
+     * @param password The password to scan
+     * @return Bitmask of {@link #PLAIN} and {@link #SUBSTITUTED} matches (0 if none)
+     */
+    public int scan(CharSequence password) {
+        Scan scan = null;
+        long substituted = 0;
+        int state = 0;
+        for (int i = 0; i < password.length(); i++) {
+            char c = password.charAt(i);
+            substituted = (substituted << 1) | (isSubstitution(c) ? 1 : 0);
+            state = matcher.step(state, fold(c));
+            if (matcher.outputCategories(state) != 0) {
+                // Only passwords that contain a word pay for the listener
+                if (scan == null) {
+                    scan = new Scan();
+                }
+                scan.substituted = substituted;
+                matcher.forEachOutput(state, i + 1, scan);
+            }
+        }
+        return scan == null ? 0 : scan.categories;
+    }
+
+    // Per-scan state: substitution flags of the last 64 characters, and the matches so far
+    private class Scan implements AhoCorasickMatcher.MatchListener {
+        long substituted;
+        int categories;
+
+        @Override
+        public void onMatch(int patternId, int end) {
+            int length = wordLengths[patternId];
+            long span = length >= 64 ? substituted : substituted & ((1L << length) - 1);
+            boolean usedSubstitution = (span & ~wordSubstitutions[patternId]) != 0;
+            categories |= 1 << (usedSubstitution ? SUBSTITUTED : PLAIN);
+        }
+    }
+
+    /**
+     * Incremental form of {@link #scan} for text edited at its end. It keeps
+     * the automaton state, the substitution flags and the categories seen so
+     * far at every position, so appending or removing a character costs the
+     * same whatever the length of the text.
+     */
+    public final class Scanner {
+        private int[] states = new int[32];
+        private long[] substitutions = new long[32];
+        private int[] categories = new int[32];
+        private int length;
+        private final Scan scan = new Scan();
+
+        /**
+         * Scan one more character
+         * @param c The character appended to the text
+         */
+        public void append(char c) {
+            if (length == states.length) {
+                states = Arrays.copyOf(states, length * 2);
+                substitutions = Arrays.copyOf(substitutions, length * 2);
+                categories = Arrays.copyOf(categories, length * 2);
+            }
+            long substituted = ((length == 0 ? 0 : substitutions[length - 1]) << 1) | (isSubstitution(c) ? 1 : 0);
+            int state = matcher.step(length == 0 ? 0 : states[length - 1], fold(c));
+            int found = categories();
+            if (matcher.outputCategories(state) != 0) {
+                scan.substituted = substituted;
+                scan.categories = 0;
+                matcher.forEachOutput(state, length + 1, scan);
+                found |= scan.categories;
+            }
+            states[length] = state;
+            substitutions[length] = substituted;
+            categories[length] = found;
+            length++;
+        }
+
+        /**
+         * Forget the characters after the first newLength
+         * @param newLength Length of the text that is kept
+         */
+        public void truncate(int newLength) {
+            length = newLength;
+        }
+
+        /**
+         * @return What {@link DictionaryWords#scan} returns for the text scanned so far
+         */
+        public int categories() {
+            return length == 0 ? 0 : categories[length - 1];
+        }
+    }
+
+    /**
+     * @return A new incremental scanner over these words
+     */
+    public Scanner newScanner() {
+        return new Scanner();
+    }
+
+    /**
+     * Append the display names of the matched categories
+     * @param categories Bitmask returned by {@link #scan}
+     * @param names List to append to, in category order
+     */
+    public static void addCategoryNames(int categories, List<String> names) {
+        for (int category = 0; category < CATEGORY_NAMES.length; category++) {
+            if ((categories & (1 << category)) != 0) {
+                names.add(CATEGORY_NAMES[category]);
+            }
+        }
+    }
+
+    /**
+     * @return Number of distinct folded words
+     */
+    public int size() {
+        return wordLengths.length;
+    }
+
+    /**
+     * @return Number of automaton states, for sizing large word lists
+     */
+    public int getStateCount() {
+        return matcher.getStateCount();
+    }
+}
@@ -0,0 +1,578 @@
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Have I Been Pwned API Client
+public class HIBPClient {
+    private static final LatencyHistogram LOOKUP_LATENCY = Metrics.global().histogram("lookup");
+    private static final LatencyHistogram HASH_LATENCY = Metrics.global().histogram("hash");
+    private static final LongAdder LOOKUPS = Metrics.global().counter(
+            "breach_lookups", "Breach lookups started");
+    private static final LongAdder ERRORS = Metrics.global().counter(
+            "breach_errors", "Breach lookups that failed, including timeouts");
+    private static final LongAdder TIMEOUTS = Metrics.global().counter(
+            "breach_timeouts", "Breach lookups that failed because a request timed out");
+    private static final LongAdder CANCELLED = Metrics.global().counter(
+            "breach_cancelled", "Breach lookups abandoned because newer input superseded them");
+    private static final LongAdder FILTERED = Metrics.global().counter(
+            "breach_filter_rejections", "Breach lookups answered by the pre-filter alone");
+    private static final LongAdder FALLBACKS = Metrics.global().counter(
+            "breach_fallback_lookups", "Breach lookups answered by the fallback corpus while the API was failing");
+    
+    // Pooled keep-alive connections to the range API
+    private final HIBPTransport transport;
+    // Offline corpus; when set, lookups never touch the network
+    private final LocalBreachStore localStore;
+    // Corpus that answers only while the circuit breaker keeps the API out of reach
+    private final LocalBreachStore fallbackStore;
+    // Fails range requests fast once the API has failed repeatedly
+    private final CircuitBreaker circuitBreaker;
+    // Optional pre-filter that rules out most non-breached hashes without a lookup
+    private final BreachFilter breachFilter;
+    // Parsed range responses, so repeated prefixes skip the network
+    private final RangeCache rangeCache;
+    // Concurrent lookups sharing a prefix wait on a single fetch
+    private final SingleFlight<Integer, RangeData> rangeFetches = new SingleFlight<>();
+    // Bounded threads for the async API, so lookups never block a shared pool
+    private final BreachLookupExecutor lookupExecutor;
+    
+    public HIBPClient() {
+        this(new Builder());
+    }
+    
+    /**
+     * @param localStore Local Pwned Passwords corpus to use instead of the online API, or null
+     */
+    public HIBPClient(LocalBreachStore localStore) {
+        this(new Builder().localStore(localStore));
+    }
+    
+    private HIBPClient(Builder builder) {
+        this.transport = builder.transport != null ? builder.transport : new HIBPTransport();
+        this.localStore = builder.localStore;
+        this.fallbackStore = builder.fallbackStore;
+        this.circuitBreaker = builder.circuitBreaker != null ? builder.circuitBreaker
+                                                             : CircuitBreaker.fromConfiguration();
+        this.breachFilter = builder.breachFilter;
+        this.rangeCache = builder.rangeCache;
+        this.lookupExecutor = builder.lookupExecutor != null ? builder.lookupExecutor
+                                                             : BreachLookupExecutor.fromConfiguration();
+    }
+    
+    /**
+     * Publish this client's cache, transport, circuit breaker and executor
+     * as the process's gauges. The gauges hold references to this client,
+     * so call it only for the client that owns the process's lookups;
+     * {@link #fromConfiguration()} does. A later call from another client
+     * replaces them.
+     */
+    public void registerMetrics() {
+        Metrics metrics = Metrics.global();
+        metrics.gauge("range_cache_hits", "Lookups served from the range cache", rangeCache::getHits);
+        metrics.gauge("range_cache_misses", "Lookups that had to fetch their range", rangeCache::getMisses);
+        metrics.gauge("range_cache_hit_ratio", "Share of range lookups served from the cache",
+                      rangeCache::getHitRatio);
+        metrics.gauge("range_cache_bytes", "Bytes held by cached ranges", rangeCache::getCurrentBytes);
+        metrics.gauge("range_fetches_coalesced", "Lookups that waited on another caller's fetch",
+                      rangeFetches::getCoalesced);
+        metrics.gauge("hibp_active_requests", "Range requests in flight", transport::getActiveRequests);
+        metrics.gauge("hibp_queued_requests", "Range requests waiting for a concurrency slot or the rate limit",
+                      transport::getQueuedRequests);
+        metrics.gauge("hibp_concurrency_limit", "Range requests currently allowed in flight at once",
+                      transport::getConcurrencyLimit);
+        metrics.gauge("breach_circuit_state", "Breach API circuit breaker: 0 closed, 1 half-open, 2 open",
+                      () -> circuitBreaker.getState().ordinal());
+        metrics.gauge("breach_executor_active", "Async breach lookups running",
+                      lookupExecutor::getActive);
+        metrics.gauge("breach_executor_queued", "Async breach lookups waiting for a thread",
+                      lookupExecutor::getQueued);
+    }
+    
+    public static Builder builder() {
+        return new Builder();
+    }
+    
+    /**
+     * Create a client from system properties / environment: local corpus
+     * (hibp.corpus / HIBP_CORPUS), pre-filter (hibp.filter / HIBP_FILTER),
+     * fallback corpus (hibp.fallbackCorpus / HIBP_FALLBACK_CORPUS), range
+     * cache (hibp.cache.*), HTTP transport (hibp.apiUrl, hibp.http.*),
+     * circuit breaker (hibp.circuit.*) and async lookup executor
+     * (hibp.async.*), falling back to the online API. The client's gauges
+     * are registered with the global metrics.
+     * @return Configured client
+     */
+    public static HIBPClient fromConfiguration() {
+        Builder builder = new Builder()
+                .rangeCache(RangeCache.fromConfiguration())
+                .transport(HIBPTransport.fromConfiguration());
+        try {
+            builder.localStore(LocalBreachStore.fromConfiguration());
+        } catch (IOException e) {
+            System.err.println("Unable to open local breach corpus, using online API: " + e.getMessage());
+        }
+        try {
+            builder.fallbackStore(LocalBreachStore.fromConfiguration("hibp.fallbackCorpus", "HIBP_FALLBACK_CORPUS"));
+        } catch (IOException e) {
+            System.err.println("Unable to open fallback breach corpus, failing fast while offline: " + e.getMessage());
+        }
+        try {
+            builder.breachFilter(BreachFilter.fromConfiguration());
+        } catch (IOException e) {
+            System.err.println("Unable to open breach filter, checking every hash: " + e.getMessage());
+        }
+        HIBPClient client = builder.build();
+        client.registerMetrics();
+        return client;
+    }
+    
+    /**
+     * Get detailed breach information for a password
+     * @param password The password to check
+     * @return BreachInfo object with occurrence count, or null if not found
+     * @throws Exception if API call fails
+     */
+    public BreachInfo getPasswordBreachInfo(String password) throws Exception {
+        if (password == null || password.isEmpty()) {
+            return new BreachInfo(false, 0);
+        }
+        
+        long start = System.nanoTime();
+        LOOKUPS.increment();
+        TraceEvents.BreachLookup event = new TraceEvents.BreachLookup();
+        event.begin();
+        try {
+            BreachInfo info = lookup(password, event);
+            event.outcome = "ok";
+            return info;
+        } catch (InterruptedException | CancellationException e) {
+            CANCELLED.increment();
+            event.outcome = TraceEvents.outcome(e);
+            throw e;
+        } catch (Exception e) {
+            ERRORS.increment();
+            if (e instanceof HttpTimeoutException) {
+                TIMEOUTS.increment();
+            }
+            event.outcome = TraceEvents.outcome(e);
+            throw e;
+        } finally {
+            LOOKUP_LATENCY.recordSince(start);
+            event.commit();
+        }
+    }
+    
+    /**
+     * Look up a password without blocking the caller. The lookup runs on
+     * the client's bounded lookup executor; cancelling the future abandons it.
+     * @param password The password to check
+     * @return Future completed with the breach information, or exceptionally
+     *         on failure (RejectedExecutionException if too many lookups are queued)
+     */
+    public CompletableFuture<BreachInfo> getPasswordBreachInfoAsync(String password) {
+        if (password == null || password.isEmpty()) {
+            return CompletableFuture.completedFuture(new BreachInfo(false, 0));
+        }
+        return lookupExecutor.submit(() -> getPasswordBreachInfo(password));
+    }
+    
+    /**
+     * Look up a password without blocking the caller, giving up after a deadline
+     * @param password The password to check
+     * @param timeout Time allowed for the lookup, including any wait for a thread
+     * @param unit Unit of timeout
+     * @return Future completed with the breach information, or exceptionally
+     *         with a TimeoutException once the deadline passes
+     */
+    public CompletableFuture<BreachInfo> getPasswordBreachInfoAsync(String password, long timeout, TimeUnit unit) {
+        CompletableFuture<BreachInfo> result = getPasswordBreachInfoAsync(password).orTimeout(timeout, unit);
+        result.whenComplete((info, error) -> {
+            if (error instanceof TimeoutException) {
+                ERRORS.increment();
+                TIMEOUTS.increment();
+            }
+        });
+        return result;
+    }
+    
+    private BreachInfo lookup(String password, TraceEvents.BreachLookup event) throws Exception {
+        // Generate SHA-1 hash of the password
+        long hashStart = System.nanoTime();
+        byte[] hash = Sha1Hasher.sha1(password);
+        HASH_LATENCY.recordSince(hashStart);
+        // The first 5 hex digits (prefix) select the range; the rest is searched in it
+        int prefix = Sha1Hasher.prefix(hash, 0);
+        if (event.isEnabled()) {
+            event.prefix = Sha1Hasher.prefixHex(prefix);
+        }
+        
+        // Definitely not breached: skip the exact lookup entirely
+        if (breachFilter != null
+                && !breachFilter.mightContain(Sha1Hasher.high(hash, 0), Sha1Hasher.low(hash, 0))) {
+            FILTERED.increment();
+            event.source = "filter";
+            return new BreachInfo(false, 0);
+        }
+        
+        // Air-gapped hosts answer from the memory-mapped corpus
+        if (localStore != null) {
+            event.source = "local";
+            return localStore.getBreachInfo(Sha1Hasher.toHex(hash, 0));
+        }
+        
+        try {
+            return lookupOnline(prefix, hash, event);
+        } catch (CircuitBreaker.OpenException e) {
+            // While the API is out of reach, answer from the fallback corpus if there is one
+            if (fallbackStore == null) {
+                throw e;
+            }
+            FALLBACKS.increment();
+            event.source = "fallback";
+            return fallbackStore.getBreachInfo(Sha1Hasher.toHex(hash, 0));
+        }
+    }
+    
+    private BreachInfo lookupOnline(int prefix, byte[] hash, TraceEvents.BreachLookup event) throws Exception {
+        // Without a cache there is no reason to parse past our own suffix
+        if (!rangeCache.isEnabled()) {
+            event.source = "network";
+            int count = queryHIBPAPI(prefix, hash);
+            return new BreachInfo(count > 0, count);
+        }
+        
+        // Serve repeated prefixes from the cache of parsed ranges
+        RangeData range = rangeCache.get(prefix);
+        event.source = range != null ? "cache" : "network";
+        if (range == null) {
+            range = fetchRange(prefix, null);
+        }
+        
+        // Find our suffix and get occurrence count
+        return range.getBreachInfo(hash, 0);
+    }
+    
+    /**
+     * Fetch the range for a prefix that missed the cache, once no matter
+     * how many threads ask for it concurrently
+     * @param prefix First 5 hex digits of the SHA-1 hash as a number
+     * @param sent Counts the requests sent if this caller does the fetch (may be null)
+     * @return Parsed range response
+     * @throws Exception if the API call fails
+     */
+    private RangeData fetchRange(int prefix, LongAdder sent) throws Exception {
+        return rangeFetches.execute(prefix, () -> {
+            // Another caller may have finished this prefix just before we got here
+            RangeData range = rangeCache.peek(prefix);
+            if (range == null) {
+                // Query the HIBP API with the prefix
+                range = queryHIBPAPI(prefix, sent);
+                rangeCache.put(prefix, range);
+            }
+            return range;
+        });
+    }
+    
+    /**
+     * @return The local corpus in use, or null when lookups go to the online API
+     */
+    public LocalBreachStore getLocalStore() {
+        return localStore;
+    }
+    
+    /**
+     * @return The range cache, for hit/miss statistics
+     */
+    public RangeCache getRangeCache() {
+        return rangeCache;
+    }
+    
+    /**
+     * @return The HTTP transport, for connection and concurrency settings
+     */
+    public HIBPTransport getTransport() {
+        return transport;
+    }
+    
+    /**
+     * @return The circuit breaker in front of the range API, for its state
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+    
+    /**
+     * @return The corpus used while the circuit breaker is open, or null to fail fast instead
+     */
+    public LocalBreachStore getFallbackStore() {
+        return fallbackStore;
+    }
+    
+    /**
+     * @return The executor behind {@link #getPasswordBreachInfoAsync}
+     */
+    public BreachLookupExecutor getLookupExecutor() {
+        return lookupExecutor;
+    }
+    
+    /**
+     * @return Coalescing statistics for concurrent range fetches
+     */
+    public SingleFlight<Integer, RangeData> getRangeFetches() {
+        return rangeFetches;
+    }
+    
+    /**
+     * Check if a password has been found in data breaches (simple boolean check)
+     * @param password The password to check
+     * @return true if password was found in breaches, false otherwise
+     * @throws Exception if API call fails
+     */
+    public boolean isPasswordPwned(String password) throws Exception {
+        BreachInfo info = getPasswordBreachInfo(password);
+        return info != null && info.isPwned();
+    }
+
+    /**
+     * Check many passwords at once, fetching each range only once. The
+     * passwords are hashed and grouped by 5-digit prefix, and every password
+     * in a group is answered from one cached or fetched range. A group whose
+     * range fails leaves its passwords unanswered without failing the batch.
+     * @param passwords The passwords to check
+     * @param maxConcurrentFetches Groups resolved in parallel; the transport's own limit still applies
+     * @return Answers in input order, with request counts
+     * @throws InterruptedException if interrupted before every group is resolved
+     */
+    public BatchBreachResult getBreachInfoAll(List<? extends CharSequence> passwords, int maxConcurrentFetches)
+            throws InterruptedException {
+        int size = passwords.size();
+        BreachInfo[] results = new BreachInfo[size];
+        byte[] hashes = Sha1Hasher.sha1All(passwords);
+
+        // Sort (prefix, index) pairs so each prefix's passwords sit next to each other
+        long[] order = new long[size];
+        int checked = 0;
+        for (int i = 0; i < size; i++) {
+            if (passwords.get(i).length() == 0) {
+                results[i] = new BreachInfo(false, 0);
+            } else {
+                order[checked++] = (long) Sha1Hasher.prefix(hashes, i * Sha1Hasher.HASH_BYTES) << 32 | i;
+            }
+        }
+        Arrays.sort(order, 0, checked);
+        int[] groupStarts = new int[checked + 1];
+        int groups = 0;
+        for (int i = 0; i < checked; i++) {
+            if (i == 0 || order[i] >>> 32 != order[i - 1] >>> 32) {
+                groupStarts[groups++] = i;
+            }
+        }
+        groupStarts[groups] = checked;
+        LOOKUPS.add(checked);
+
+        BatchCounts counts = new BatchCounts();
+        AtomicInteger nextGroup = new AtomicInteger();
+        int groupCount = groups;
+        Runnable worker = () -> {
+            int group;
+            while (!Thread.currentThread().isInterrupted() && (group = nextGroup.getAndIncrement()) < groupCount) {
+                resolveGroup(hashes, order, groupStarts[group], groupStarts[group + 1], results, counts);
+            }
+        };
+
+        int workers = Math.max(1, Math.min(maxConcurrentFetches, groups));
+        ExecutorService pool = Executors.newFixedThreadPool(workers, BreachLookupExecutor.daemonThreads("breach-batch"));
+        try {
+            List<Future<?>> running = new ArrayList<>(workers);
+            for (int i = 0; i < workers; i++) {
+                running.add(pool.submit(worker));
+            }
+            for (Future<?> future : running) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Batch breach check failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        return new BatchBreachResult(results, groups, counts.rangeLookups.sum(), counts.upstream.sum(),
+                                     counts.cacheHits.sum(), counts.filtered.sum(), counts.failed.sum());
+    }
+
+    // Answer every password in order[from, to), which all share one prefix
+    private void resolveGroup(byte[] hashes, long[] order, int from, int to, BreachInfo[] results,
+                              BatchCounts counts) {
+        int pending = 0;
+        for (int i = from; i < to; i++) {
+            int offset = (int) order[i] * Sha1Hasher.HASH_BYTES;
+            if (breachFilter != null
+                    && !breachFilter.mightContain(Sha1Hasher.high(hashes, offset), Sha1Hasher.low(hashes, offset))) {
+                results[(int) order[i]] = new BreachInfo(false, 0);
+                counts.filtered.increment();
+                FILTERED.increment();
+            } else if (localStore != null) {
+                results[(int) order[i]] = localStore.getBreachInfo(Sha1Hasher.toHex(hashes, offset));
+            } else {
+                order[pending + from] = order[i];
+                pending++;
+            }
+        }
+        if (pending == 0) {
+            return;
+        }
+        counts.rangeLookups.add(pending);
+
+        int prefix = (int) (order[from] >>> 32);
+        RangeData range = rangeCache.get(prefix);
+        if (range != null) {
+            counts.cacheHits.increment();
+        } else {
+            try {
+                // Counts only requests this batch sent, not fetches it joined
+                range = fetchRange(prefix, counts.upstream);
+            } catch (CircuitBreaker.OpenException e) {
+                if (fallbackStore == null) {
+                    counts.failed.add(pending);
+                    ERRORS.add(pending);
+                    return;
+                }
+                FALLBACKS.add(pending);
+                for (int i = from; i < from + pending; i++) {
+                    int index = (int) order[i];
+                    results[index] = fallbackStore.getBreachInfo(
+                            Sha1Hasher.toHex(hashes, index * Sha1Hasher.HASH_BYTES));
+                }
+                return;
+            } catch (Exception e) {
+                counts.failed.add(pending);
+                ERRORS.add(pending);
+                if (e instanceof HttpTimeoutException) {
+                    TIMEOUTS.add(pending);
+                }
+                return;
+            }
+        }
+        for (int i = from; i < from + pending; i++) {
+            int index = (int) order[i];
+            results[index] = range.getBreachInfo(hashes, index * Sha1Hasher.HASH_BYTES);
+        }
+    }
+
+    private static final class BatchCounts {
+        final LongAdder rangeLookups = new LongAdder();
+        final LongAdder upstream = new LongAdder();
+        final LongAdder cacheHits = new LongAdder();
+        final LongAdder filtered = new LongAdder();
+        final LongAdder failed = new LongAdder();
+    }
+
+    /**
+     * Query the HIBP API for password suffixes, parsing the range as it streams in
+     * @param prefix First 5 hex digits of SHA-1 hash as a number
+     * @param sent Counts the requests sent, retries included (may be null)
+     * @return Sorted suffixes and their occurrence counts
+     * @throws Exception if API call fails
+     */
+    private RangeData queryHIBPAPI(int prefix, LongAdder sent) throws Exception {
+        String prefixHex = Sha1Hasher.prefixHex(prefix);
+        return fetchGuarded(prefixHex, RangeBodySubscriber.rangeData(prefixHex), sent);
+    }
+    
+    /**
+     * Query the HIBP API for a single suffix, stopping at the match or once the sorted range passes it
+     * @param prefix First 5 hex digits of SHA-1 hash as a number
+     * @param hash Full SHA-1 hash
+     * @return Occurrence count, or 0 if the suffix is not in the range
+     * @throws Exception if API call fails
+     */
+    private int queryHIBPAPI(int prefix, byte[] hash) throws Exception {
+        return fetchGuarded(Sha1Hasher.prefixHex(prefix), RangeBodySubscriber.count(hash, 0), null);
+    }
+    
+    // Every range request passes the circuit breaker, so a dead API fails fast
+    private <T> T fetchGuarded(String prefixHex, HttpResponse.BodyHandler<T> handler, LongAdder sent)
+            throws Exception {
+        circuitBreaker.acquire();
+        try {
+            T body = transport.fetchRange(prefixHex, handler, sent);
+            circuitBreaker.onSuccess();
+            return body;
+        } catch (InterruptedException | CancellationException e) {
+            circuitBreaker.onAbandoned();
+            throw e;
+        } catch (Exception e) {
+            circuitBreaker.onFailure();
+            throw e;
+        }
+    }
+    
+    /**
+     * Optional components for {@link HIBPClient}
+     */
+    public static class Builder {
+        private LocalBreachStore localStore;
+        private BreachFilter breachFilter;
+        private RangeCache rangeCache = new RangeCache(RangeCache.DEFAULT_MAX_BYTES,
+                                                       RangeCache.DEFAULT_TTL_SECONDS, TimeUnit.SECONDS);
+        private HIBPTransport transport;
+        private BreachLookupExecutor lookupExecutor;
+        private LocalBreachStore fallbackStore;
+        private CircuitBreaker circuitBreaker;
+        
+        public Builder localStore(LocalBreachStore localStore) {
+            this.localStore = localStore;
+            return this;
+        }
+        
+        public Builder breachFilter(BreachFilter breachFilter) {
+            this.breachFilter = breachFilter;
+            return this;
+        }
+        
+        public Builder rangeCache(RangeCache rangeCache) {
+            this.rangeCache = rangeCache;
+            return this;
+        }
+        
+        public Builder transport(HIBPTransport transport) {
+            this.transport = transport;
+            return this;
+        }
+        
+        /**
+         * @param fallbackStore Corpus that answers while the circuit breaker is open
+         * @return This builder
+         */
+        public Builder fallbackStore(LocalBreachStore fallbackStore) {
+            this.fallbackStore = fallbackStore;
+            return this;
+        }
+        
+        public Builder circuitBreaker(CircuitBreaker circuitBreaker) {
+            this.circuitBreaker = circuitBreaker;
+            return this;
+        }
+        
+        public Builder lookupExecutor(BreachLookupExecutor lookupExecutor) {
+            this.lookupExecutor = lookupExecutor;
+            return this;
+        }
+        
+        public HIBPClient build() {
+            return new HIBPClient(this);
+        }
+    }
+}
@@ -0,0 +1,564 @@
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * HTTP transport for the HIBP range API.
+ *
+ * One shared {@link HttpClient} keeps connections alive between lookups and
+ * negotiates HTTP/2 where the server supports it. Concurrent range requests
+ * are then multiplexed over a single connection instead of each one paying
+ * a TCP and TLS handshake. The number of requests in flight is capped. Calls
+ * beyond the cap wait in a FIFO queue without holding a thread.
+ *
+ * Bulk lookups must not flood the server. The cap adapts: it is halved
+ * when the server answers 429 or 503 or stops answering in time, and
+ * grows back while requests succeed ({@link AdaptiveConcurrencyLimit}).
+ * An optional {@link TokenBucket} caps the request rate and honours
+ * Retry-After by holding back every request until it has passed.
+ * Throttled and transiently failed requests are retried with jittered
+ * exponential backoff, so a burst of rejections does not come back in
+ * lockstep.
+ *
+ * {@link #fetchRangeAsync} is the primitive. {@link #fetchRange} blocks on
+ * it, so both paths share the same connections and limit. Callers pass a
+ * body handler so the response can be parsed while it streams in; the
+ * handler only sees 200 responses.
+ */
+public class HIBPTransport {
+    public static final String DEFAULT_API_URL = "https://api.pwnedpasswords.com/range/";
+    public static final long DEFAULT_CONNECT_TIMEOUT_MILLIS = 5000;
+    public static final long DEFAULT_REQUEST_TIMEOUT_MILLIS = 10000;
+    public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 16;
+    public static final int DEFAULT_MAX_RETRIES = 3;
+
+    // Backoff before the first retry; each further retry doubles it
+    private static final long RETRY_BASE_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    // Longest wait before a retry, and longest Retry-After honoured
+    private static final long MAX_RETRY_DELAY_NANOS = TimeUnit.SECONDS.toNanos(30);
+    // Sleeps until the next token or retry, shared by all transports
+    private static final ScheduledExecutorService PACER = Executors.newSingleThreadScheduledExecutor(
+            BreachLookupExecutor.daemonThreads("hibp-pacer"));
+
+    // Waiting for a slot or a token, sending until the response headers arrive, then the body
+    private static final LatencyHistogram QUEUE_LATENCY = Metrics.global().histogram("queue");
+    private static final LatencyHistogram NETWORK_LATENCY = Metrics.global().histogram("network");
+    private static final LatencyHistogram BODY_LATENCY = Metrics.global().histogram("body");
+    private static final LongAdder REQUESTS = Metrics.global().counter(
+            "hibp_requests", "Range requests sent to the API");
+    private static final LongAdder THROTTLED = Metrics.global().counter(
+            "hibp_throttled", "Range responses with status 429 or 503");
+    private static final LongAdder RETRIES = Metrics.global().counter(
+            "hibp_retries", "Range requests retried after throttling or a transient failure");
+
+    private final String apiUrl;
+    private final Duration requestTimeout;
+    private final int maxConcurrentRequests;
+    private final int maxRetries;
+    private final HttpClient httpClient;
+
+    private final AdaptiveConcurrencyLimit limit;
+    private final TokenBucket rate;
+    private final Queue<Runnable> waiting = new ConcurrentLinkedQueue<>();
+    // Set while PACER holds a dispatch waiting for the next token
+    private final AtomicBoolean dispatchScheduled = new AtomicBoolean();
+
+    public HIBPTransport() {
+        this(DEFAULT_API_URL, DEFAULT_CONNECT_TIMEOUT_MILLIS, DEFAULT_REQUEST_TIMEOUT_MILLIS,
+             DEFAULT_MAX_CONCURRENT_REQUESTS);
+    }
+
+    /**
+     * Transport with an adaptive concurrency limit, no rate limit and the default retries
+     * @param apiUrl Base URL the 5-digit prefix is appended to
+     * @param connectTimeoutMillis Timeout for establishing a connection
+     * @param requestTimeoutMillis Timeout for one request, from sending to the full response
+     * @param maxConcurrentRequests Maximum requests in flight at once
+     */
+    public HIBPTransport(String apiUrl, long connectTimeoutMillis, long requestTimeoutMillis,
+                         int maxConcurrentRequests) {
+        this(apiUrl, connectTimeoutMillis, requestTimeoutMillis, maxConcurrentRequests, true, 0,
+             DEFAULT_MAX_RETRIES);
+    }
+
+    /**
+     * @param apiUrl Base URL the 5-digit prefix is appended to
+     * @param connectTimeoutMillis Timeout for establishing a connection
+     * @param requestTimeoutMillis Timeout for one request, from sending to the full response
+     * @param maxConcurrentRequests Maximum requests in flight at once
+     * @param adaptiveConcurrency Lower the limit below the maximum while the server signals overload
+     * @param maxRequestsPerSecond Sustained request rate (0 for unlimited)
+     * @param maxRetries Retries per request after throttling or a transient failure
+     */
+    public HIBPTransport(String apiUrl, long connectTimeoutMillis, long requestTimeoutMillis,
+                         int maxConcurrentRequests, boolean adaptiveConcurrency, double maxRequestsPerSecond,
+                         int maxRetries) {
+        if (maxConcurrentRequests < 1) {
+            throw new IllegalArgumentException("maxConcurrentRequests must be at least 1");
+        }
+        this.apiUrl = apiUrl;
+        this.requestTimeout = Duration.ofMillis(requestTimeoutMillis);
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.maxRetries = Math.max(0, maxRetries);
+        this.limit = new AdaptiveConcurrencyLimit(maxConcurrentRequests, adaptiveConcurrency);
+        // A burst of one second's worth, but at least the concurrency cap
+        this.rate = new TokenBucket(maxRequestsPerSecond,
+                                    Math.max(maxConcurrentRequests, (int) Math.ceil(maxRequestsPerSecond)));
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMillis))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    /**
+     * Create a transport from the hibp.apiUrl, hibp.http.connectTimeoutMillis,
+     * hibp.http.requestTimeoutMillis, hibp.http.maxConcurrentRequests,
+     * hibp.http.adaptiveConcurrency, hibp.http.maxRequestsPerSecond and
+     * hibp.http.maxRetries system properties
+     * @return Configured transport
+     */
+    public static HIBPTransport fromConfiguration() {
+        return fromConfiguration(System.getProperty("hibp.apiUrl", DEFAULT_API_URL));
+    }
+
+    /**
+     * Create a transport for the given API from the other hibp.http.* system properties
+     * @param apiUrl Base URL the 5-digit prefix is appended to
+     * @return Configured transport
+     */
+    public static HIBPTransport fromConfiguration(String apiUrl) {
+        return new HIBPTransport(
+                apiUrl,
+                Long.getLong("hibp.http.connectTimeoutMillis", DEFAULT_CONNECT_TIMEOUT_MILLIS),
+                Long.getLong("hibp.http.requestTimeoutMillis", DEFAULT_REQUEST_TIMEOUT_MILLIS),
+                Integer.getInteger("hibp.http.maxConcurrentRequests", DEFAULT_MAX_CONCURRENT_REQUESTS),
+                Boolean.parseBoolean(System.getProperty("hibp.http.adaptiveConcurrency", "true")),
+                Double.parseDouble(System.getProperty("hibp.http.maxRequestsPerSecond", "0")),
+                Integer.getInteger("hibp.http.maxRetries", DEFAULT_MAX_RETRIES));
+    }
+
+    /**
+     * Thrown for a range response other than 200
+     */
+    public static class StatusException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        private final int statusCode;
+
+        StatusException(int statusCode) {
+            super("HIBP API returned response code: " + statusCode);
+            this.statusCode = statusCode;
+        }
+
+        public int getStatusCode() { return statusCode; }
+    }
+
+    /**
+     * Fetch one range as text, blocking until the response arrives
+     * @param prefix First 5 characters of the SHA-1 hash
+     * @return Response body (SUFFIX:COUNT lines)
+     * @throws Exception if the request fails or the API returns an error status
+     */
+    public String fetchRange(String prefix) throws Exception {
+        return fetchRange(prefix, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Fetch one range, blocking until the handler has produced its result
+     * @param prefix First 5 characters of the SHA-1 hash
+     * @param handler Parses the response body
+     * @return The parsed body
+     * @throws Exception if the request fails or the API returns an error status
+     */
+    public <T> T fetchRange(String prefix, HttpResponse.BodyHandler<T> handler) throws Exception {
+        return fetchRange(prefix, handler, null);
+    }
+
+    /**
+     * Fetch one range, blocking until the handler has produced its result
+     * @param prefix First 5 characters of the SHA-1 hash
+     * @param handler Parses the response body
+     * @param sent Incremented for every attempt actually sent, retries included (may be null)
+     * @return The parsed body
+     * @throws Exception if the request fails or the API returns an error status
+     */
+    public <T> T fetchRange(String prefix, HttpResponse.BodyHandler<T> handler, LongAdder sent) throws Exception {
+        CompletableFuture<T> response = fetchRangeAsync(prefix, handler, sent);
+        try {
+            return response.get();
+        } catch (InterruptedException e) {
+            response.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Fetch one range as text without blocking
+     * @param prefix First 5 characters of the SHA-1 hash
+     * @return Future completed with the response body, or exceptionally on failure
+     */
+    public CompletableFuture<String> fetchRangeAsync(String prefix) {
+        return fetchRangeAsync(prefix, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Fetch one range without blocking. The request starts as soon as the
+     * concurrency limit and the rate allow; cancelling the future before
+     * then drops it. Throttled and transiently failed requests are retried
+     * before the future fails.
+     * @param prefix First 5 characters of the SHA-1 hash
+     * @param handler Parses the response body
+     * @return Future completed with the parsed body, or exceptionally on failure
+     */
+    public <T> CompletableFuture<T> fetchRangeAsync(String prefix, HttpResponse.BodyHandler<T> handler) {
+        return fetchRangeAsync(prefix, handler, null);
+    }
+
+    /**
+     * Fetch one range without blocking, counting the attempts it takes
+     * @param prefix First 5 characters of the SHA-1 hash
+     * @param handler Parses the response body
+     * @param sent Incremented for every attempt actually sent, retries included (may be null)
+     * @return Future completed with the parsed body, or exceptionally on failure
+     */
+    public <T> CompletableFuture<T> fetchRangeAsync(String prefix, HttpResponse.BodyHandler<T> handler,
+                                                    LongAdder sent) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(apiUrl + prefix))
+                .timeout(requestTimeout)
+                .header("User-Agent", "PasswordChecker/1.0")
+                .GET()
+                .build();
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        enqueue(prefix, request, handler, sent, result, 0);
+        return result;
+    }
+
+    // Queue one attempt at a request; a retry queues the next attempt
+    private <T> void enqueue(String prefix, HttpRequest request, HttpResponse.BodyHandler<T> handler,
+                             LongAdder sent, CompletableFuture<T> result, int attempt) {
+        RequestTrace trace = new RequestTrace(prefix);
+
+        // Error bodies are discarded rather than handed to the parser
+        HttpResponse.BodyHandler<T> okOnly = info -> {
+            trace.headersAt = System.nanoTime();
+            trace.statusCode = info.statusCode();
+            NETWORK_LATENCY.record(trace.headersAt - trace.sentAt);
+            return trace.counting(info.statusCode() == 200
+                    ? handler.apply(info)
+                    : HttpResponse.BodySubscribers.replacing(null));
+        };
+
+        waiting.add(() -> {
+            if (result.isDone()) {
+                // Cancelled while queued; the dispatch loop moves on
+                limit.release();
+                rate.refund();
+                trace.finish("cancelled");
+                return;
+            }
+            trace.sentAt = System.nanoTime();
+            QUEUE_LATENCY.record(trace.sentAt - trace.queuedAt);
+            REQUESTS.increment();
+            if (sent != null) {
+                sent.increment();
+            }
+            CompletableFuture<HttpResponse<T>> exchange = httpClient.sendAsync(request, okOnly);
+            // Whoever hands the slot back first: the exchange finishing, or the caller cancelling
+            AtomicBoolean holdsSlot = new AtomicBoolean(true);
+            // Propagate cancellation to the exchange
+            result.whenComplete((body, error) -> {
+                if (error instanceof CancellationException) {
+                    exchange.cancel(true);
+                    // Before JDK 16 the cancel does not abort the exchange, so free the
+                    // slot now; an abandoned request says nothing about the server's load
+                    if (holdsSlot.compareAndSet(true, false)) {
+                        limit.release();
+                        dispatch();
+                    }
+                }
+            });
+            exchange.whenComplete((response, error) -> {
+                if (trace.headersAt != 0) {
+                    BODY_LATENCY.recordSince(trace.headersAt);
+                }
+                Throwable failure = null;
+                long retryAfter = -1;
+                if (error != null) {
+                    failure = error instanceof CompletionException
+                              && error.getCause() != null ? error.getCause() : error;
+                } else if (response.statusCode() != 200) {
+                    failure = new StatusException(response.statusCode());
+                    retryAfter = retryAfterNanos(response.headers());
+                }
+
+                // Feed the outcome back before the next request goes out
+                if (!holdsSlot.compareAndSet(true, false)) {
+                    // Already released on cancellation
+                } else if (failure == null) {
+                    limit.onSuccess();
+                } else if (isOverload(failure)) {
+                    limit.onOverload(trace.sentAt);
+                } else {
+                    limit.release();
+                }
+                if (isThrottled(failure)) {
+                    THROTTLED.increment();
+                }
+                if (retryAfter >= 0) {
+                    rate.pause(Math.min(retryAfter, MAX_RETRY_DELAY_NANOS));
+                }
+                dispatch();
+
+                if (failure == null) {
+                    trace.finish("ok");
+                    result.complete(response.body());
+                    return;
+                }
+                trace.finish(error != null ? TraceEvents.outcome(failure) : "http-error");
+                long delay = attempt < maxRetries && isRetryable(failure) && !result.isDone()
+                             ? retryDelayNanos(attempt, retryAfter) : -1;
+                if (delay < 0) {
+                    result.completeExceptionally(failure);
+                    return;
+                }
+                RETRIES.increment();
+                PACER.schedule(() -> enqueue(prefix, request, handler, sent, result, attempt + 1),
+                               delay, TimeUnit.NANOSECONDS);
+            });
+        });
+        dispatch();
+    }
+
+    // Start queued requests while the concurrency limit and the rate allow
+    private void dispatch() {
+        while (!waiting.isEmpty() && limit.tryAcquire()) {
+            long wait = rate.tryAcquire();
+            if (wait > 0) {
+                // Out of tokens or paused: try again once the next token is due
+                limit.release();
+                scheduleDispatch(wait);
+                return;
+            }
+            Runnable next = waiting.poll();
+            if (next == null) {
+                // Another thread took it; hand the slot and token back and re-check
+                limit.release();
+                rate.refund();
+                continue;
+            }
+            next.run();
+        }
+    }
+
+    private void scheduleDispatch(long nanos) {
+        if (dispatchScheduled.compareAndSet(false, true)) {
+            PACER.schedule(() -> {
+                dispatchScheduled.set(false);
+                dispatch();
+            }, nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Responses that mean the server wants less load
+    private static boolean isThrottled(Throwable failure) {
+        if (failure instanceof StatusException) {
+            int status = ((StatusException) failure).getStatusCode();
+            return status == 429 || status == 503;
+        }
+        return false;
+    }
+
+    // Throttling, or a response too slow to arrive before the timeout
+    private static boolean isOverload(Throwable failure) {
+        return isThrottled(failure)
+               || failure instanceof HttpTimeoutException && !(failure instanceof HttpConnectTimeoutException);
+    }
+
+    // Failures a later attempt may not repeat. Timeouts have already waited
+    // their full length, and unreachable hosts are left to the circuit breaker.
+    private static boolean isRetryable(Throwable failure) {
+        if (failure instanceof StatusException) {
+            int status = ((StatusException) failure).getStatusCode();
+            return status == 429 || status == 502 || status == 503 || status == 504;
+        }
+        return failure instanceof IOException
+               && !(failure instanceof HttpTimeoutException)
+               && !(failure instanceof ConnectException);
+    }
+
+    /**
+     * Backoff before a retry, jittered so that requests rejected together
+     * do not come back together
+     * @param attempt Attempts already made, less one
+     * @param retryAfterNanos The server's Retry-After, or -1 if it sent none
+     * @return Nanoseconds to wait, or -1 to give up because the wait is too long
+     */
+    static long retryDelayNanos(int attempt, long retryAfterNanos) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (retryAfterNanos > MAX_RETRY_DELAY_NANOS) {
+            return -1;
+        }
+        if (retryAfterNanos >= 0) {
+            return retryAfterNanos + random.nextLong(RETRY_BASE_NANOS + 1);
+        }
+        // Full jitter: anywhere between 0 and the exponential backoff
+        long ceiling = Math.min(MAX_RETRY_DELAY_NANOS, RETRY_BASE_NANOS << Math.min(attempt, 16));
+        return random.nextLong(ceiling + 1);
+    }
+
+    /**
+     * @param headers Response headers
+     * @return The Retry-After header (delta-seconds or an HTTP date) in
+     *         nanoseconds from now, or -1 if absent or malformed
+     */
+    static long retryAfterNanos(HttpHeaders headers) {
+        Optional<String> header = headers.firstValue("Retry-After");
+        if (header.isEmpty()) {
+            return -1;
+        }
+        String value = header.get().trim();
+        try {
+            return TimeUnit.SECONDS.toNanos(Math.max(0, Long.parseLong(value)));
+        } catch (NumberFormatException e) {
+            // Not delta-seconds; try an HTTP date
+        }
+        try {
+            ZonedDateTime at = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.max(0, Duration.between(ZonedDateTime.now(), at).toNanos());
+        } catch (DateTimeParseException | ArithmeticException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Timing and size of one request, for the stage histograms and the
+     * JFR range request event. Each field is written by one callback of
+     * the exchange and read by a later one.
+     */
+    private static final class RequestTrace {
+        final String prefix;
+        final TraceEvents.RangeRequest event = new TraceEvents.RangeRequest();
+        final long queuedAt = System.nanoTime();
+        long sentAt;
+        long headersAt;
+        int statusCode;
+        long bytes;
+
+        RequestTrace(String prefix) {
+            this.prefix = prefix;
+            event.begin();
+        }
+
+        // Count the body bytes on their way to the real subscriber
+        <T> HttpResponse.BodySubscriber<T> counting(HttpResponse.BodySubscriber<T> subscriber) {
+            return new HttpResponse.BodySubscriber<T>() {
+                @Override
+                public CompletionStage<T> getBody() {
+                    return subscriber.getBody();
+                }
+
+                @Override
+                public void onSubscribe(Flow.Subscription subscription) {
+                    subscriber.onSubscribe(subscription);
+                }
+
+                @Override
+                public void onNext(List<ByteBuffer> buffers) {
+                    for (ByteBuffer buffer : buffers) {
+                        bytes += buffer.remaining();
+                    }
+                    subscriber.onNext(buffers);
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    subscriber.onError(throwable);
+                }
+
+                @Override
+                public void onComplete() {
+                    subscriber.onComplete();
+                }
+            };
+        }
+
+        void finish(String outcome) {
+            event.end();
+            if (!event.shouldCommit()) {
+                return;
+            }
+            long now = System.nanoTime();
+            long sent = sentAt != 0 ? sentAt : now;
+            long headers = headersAt != 0 ? headersAt : now;
+            event.prefix = prefix;
+            event.queued = sent - queuedAt;
+            event.firstByte = headers - sent;
+            event.body = now - headers;
+            event.statusCode = statusCode;
+            event.responseBytes = bytes;
+            event.outcome = outcome;
+            event.commit();
+        }
+    }
+
+    public String getApiUrl() { return apiUrl; }
+    public int getMaxConcurrentRequests() { return maxConcurrentRequests; }
+    public int getMaxRetries() { return maxRetries; }
+    public boolean isAdaptiveConcurrency() { return limit.isAdaptive(); }
+
+    /**
+     * @return Requests currently allowed in flight at once, at most getMaxConcurrentRequests
+     */
+    public int getConcurrencyLimit() {
+        return limit.getLimit();
+    }
+
+    /**
+     * @return Number of requests currently in flight
+     */
+    public int getActiveRequests() {
+        return limit.getInFlight();
+    }
+
+    /**
+     * @return Number of requests waiting for a concurrency slot or the rate limit
+     */
+    public int getQueuedRequests() {
+        return waiting.size();
+    }
+}
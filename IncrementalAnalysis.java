@@ -0,0 +1,133 @@
+/**
+ * Analysis state for a password that is still being typed.
+ *
+ * {@link PasswordStrengthAnalyzer#analyzePassword} scans the whole password
+ * on every call. This class keeps the scan state instead: the character
+ * profile (class counts, first repeat, histogram) and the pattern and
+ * dictionary-word automata at every position. Typing or deleting a
+ * character at the end then costs one step, whatever the length. An edit
+ * in the middle rescans only from the edit onwards. The results are
+ * identical to analyzePassword for the same text.
+ *
+ * The weak-dictionary check still hashes the whole password, but only while
+ * it is no longer than the dictionary's longest word.
+ *
+ * Instances are not thread-safe; keep one per input field.
+ */
+public class IncrementalAnalysis {
+    private static final LatencyHistogram ANALYSIS_LATENCY = Metrics.global().histogram("analysis");
+
+    private final PasswordStrengthAnalyzer analyzer;
+    private final CharacterProfile profile = new CharacterProfile();
+    private final CommonPatterns.Scanner patterns = new CommonPatterns.Scanner();
+    private final DictionaryWords.Scanner words;
+    // The text the state above describes
+    private final StringBuilder text = new StringBuilder();
+    private PasswordAnalysisResult result;
+
+    // Characters scanned, to confirm edits stay incremental
+    private long scanned;
+
+    /**
+     * @param analyzer Analyzer whose dictionaries and scoring are used
+     */
+    public IncrementalAnalysis(PasswordStrengthAnalyzer analyzer) {
+        this.analyzer = analyzer;
+        this.words = analyzer.getDictionaryWords().newScanner();
+        this.result = analyzer.analyzePassword("");
+    }
+
+    /**
+     * Analyze the current text, rescanning only from the first character
+     * that differs from the previous call
+     * @param password The full current text
+     * @return The analysis, as {@link PasswordStrengthAnalyzer#analyzePassword} returns it
+     */
+    public PasswordAnalysisResult update(CharSequence password) {
+        int limit = Math.min(text.length(), password.length());
+        int same = 0;
+        while (same < limit && text.charAt(same) == password.charAt(same)) {
+            same++;
+        }
+        if (same == text.length() && same == password.length()) {
+            return result;
+        }
+        return edit(same, text.length(), password.subSequence(same, password.length()));
+    }
+
+    /**
+     * Replace part of the text and re-analyze. Typing or deleting at the
+     * end takes constant time; other edits rescan from the start of the edit.
+     * @param start Index of the first replaced character
+     * @param end Index after the last replaced character
+     * @param replacement The new characters (empty for a deletion)
+     * @return The analysis of the edited text
+     */
+    public PasswordAnalysisResult edit(int start, int end, CharSequence replacement) {
+        if (start < 0 || start > end || end > text.length()) {
+            throw new IndexOutOfBoundsException("Edit [" + start + ", " + end + ") of a " + text.length()
+                                               + "-character text");
+        }
+        long begin = System.nanoTime();
+        String tail = end < text.length() ? text.substring(end) : "";
+
+        // Unwind to start: one character at a time, or rescan the prefix when that is shorter
+        int removed = text.length() - start;
+        if (removed > start) {
+            text.setLength(start);
+            profile.reset(text);
+            scanned += start;
+        } else {
+            for (int length = text.length(); length > start; length--) {
+                profile.removeLast(text);
+                text.setLength(length - 1);
+            }
+        }
+        patterns.truncate(start);
+        words.truncate(start);
+        append(replacement);
+        append(tail);
+
+        if (text.length() == 0) {
+            result = analyzer.analyzePassword("");
+        } else {
+            boolean isInWeakDictionary = analyzer.getWeakPasswords().contains(text);
+            result = analyzer.score(profile, patterns.categories(),
+                                    isInWeakDictionary ? 0 : words.categories(), isInWeakDictionary);
+            ANALYSIS_LATENCY.recordSince(begin);
+        }
+        return result;
+    }
+
+    private void append(CharSequence chars) {
+        for (int i = 0; i < chars.length(); i++) {
+            char c = chars.charAt(i);
+            text.append(c);
+            profile.append(text);
+            patterns.append(c);
+            words.append(c);
+        }
+        scanned += chars.length();
+    }
+
+    /**
+     * @return The analysis of the current text
+     */
+    public PasswordAnalysisResult getResult() {
+        return result;
+    }
+
+    /**
+     * @return Length of the current text
+     */
+    public int length() {
+        return text.length();
+    }
+
+    /**
+     * @return Characters scanned since creation; a full rescan on every edit would scan the whole text each time
+     */
+    public long getScannedCharacters() {
+        return scanned;
+    }
+}
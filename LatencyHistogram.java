@@ -0,0 +1,148 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram in nanoseconds with HDR-style log-linear buckets.
+ *
+ * Values below 32 get a bucket each. Above that, every power of two is
+ * split into 32 equal sub-buckets, so any recorded value is off by at most
+ * 1/32 (about 3%) from its bucket's upper bound. 1888 buckets cover the
+ * whole positive long range.
+ *
+ * Recording is lock-free and never allocates: one atomic increment of the
+ * bucket, one {@link LongAdder} add for the sum, and a compare-and-set on
+ * the maximum only when a new maximum is seen. Readers take a
+ * {@link Snapshot}, which is consistent enough for monitoring but not
+ * atomic across buckets.
+ */
+public class LatencyHistogram implements LatencyHistogramMXBean {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final String name;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @param name Stage name, used in the scrape output and JMX object name
+     */
+    public LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Record one latency
+     * @param nanos Duration in nanoseconds; negative values count as 0
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        counts.getAndIncrement(bucket(nanos));
+        sum.add(nanos);
+        long current = max.get();
+        while (nanos > current && !max.compareAndSet(current, nanos)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * Record the time elapsed since a {@link System#nanoTime} reading
+     * @param startNanos The earlier reading
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    // Largest value that falls into a bucket
+    static long highestValue(int bucket) {
+        int group = bucket >>> SUB_BUCKET_BITS;
+        if (group == 0) {
+            return bucket;
+        }
+        long position = SUB_BUCKETS + (bucket & (SUB_BUCKETS - 1));
+        return ((position + 1) << (group - 1)) - 1;
+    }
+
+    /**
+     * @return Point-in-time copy of the counts
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            total += copy[i];
+        }
+        return new Snapshot(copy, total, sum.sum(), max.get());
+    }
+
+    public String getName() { return name; }
+
+    @Override
+    public long getCount() { return snapshot().getCount(); }
+    @Override
+    public double getMeanMicros() { return snapshot().getMean() / 1e3; }
+    @Override
+    public double getP50Micros() { return snapshot().getPercentile(50) / 1e3; }
+    @Override
+    public double getP90Micros() { return snapshot().getPercentile(90) / 1e3; }
+    @Override
+    public double getP99Micros() { return snapshot().getPercentile(99) / 1e3; }
+    @Override
+    public double getP999Micros() { return snapshot().getPercentile(99.9) / 1e3; }
+    @Override
+    public double getMaxMicros() { return max.get() / 1e3; }
+
+    /**
+     * Bucket counts at one point in time, in nanoseconds
+     */
+    public static class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        private Snapshot(long[] counts, long count, long sum, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        /**
+         * @param percentile Between 0 and 100
+         * @return Upper bound of the bucket holding that percentile, capped at the maximum; 0 if empty
+         */
+        public long getPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(highestValue(i), max);
+                }
+            }
+            return max;
+        }
+
+        public long getCount() { return count; }
+        public long getSum() { return sum; }
+        public long getMax() { return max; }
+        public double getMean() { return count == 0 ? 0 : (double) sum / count; }
+    }
+}
@@ -0,0 +1,13 @@
+/**
+ * JMX view of one {@link LatencyHistogram}. Every attribute reads a fresh
+ * snapshot; all latencies are in microseconds.
+ */
+public interface LatencyHistogramMXBean {
+    long getCount();
+    double getMeanMicros();
+    double getP50Micros();
+    double getP90Micros();
+    double getP99Micros();
+    double getP999Micros();
+    double getMaxMicros();
+}
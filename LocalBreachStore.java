@@ -0,0 +1,170 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Offline breach lookups against a locally downloaded Pwned Passwords corpus.
+ *
+ * Expects the SHA-1 "ordered by hash" file: one {@code HASH:COUNT} line per
+ * entry, 40 hex digits, sorted ascending. The file is memory-mapped in 1 GiB
+ * segments (so corpora of tens of GB work) and searched by binary search
+ * directly over the mapped pages. Nothing is copied onto the heap; the OS
+ * page cache keeps the hot parts of the file resident.
+ *
+ * Lookups are read-only and safe to call from multiple threads.
+ */
+public class LocalBreachStore implements Closeable {
+    private static final int HASH_LENGTH = 40;
+    // Below this window size the search switches to a linear line scan
+    private static final long LINEAR_SCAN_WINDOW = 512;
+
+    private final Path path;
+    private final MappedFile file;
+    private final long size;
+
+    /**
+     * Map a corpus file for lookups
+     * @param path Path to the sorted SHA1:count file
+     * @throws IOException if the file cannot be opened or does not look like a corpus
+     */
+    public LocalBreachStore(Path path) throws IOException {
+        this.path = path;
+        this.file = MappedFile.openReadOnly(path);
+        this.size = file.size();
+        if (size < HASH_LENGTH + 2 || byteAt(HASH_LENGTH) != ':') {
+            file.close();
+            throw new IOException("Not a SHA1:count corpus file: " + path);
+        }
+    }
+
+    /**
+     * Open the corpus named by the {@code hibp.corpus} system property or the
+     * {@code HIBP_CORPUS} environment variable
+     * @return The mapped store, or null if neither is set
+     * @throws IOException if the configured file cannot be mapped
+     */
+    public static LocalBreachStore fromConfiguration() throws IOException {
+        return fromConfiguration("hibp.corpus", "HIBP_CORPUS");
+    }
+
+    /**
+     * Open the corpus named by a system property or environment variable
+     * @param property System property holding the path
+     * @param environmentVariable Environment variable consulted when the property is unset
+     * @return The mapped store, or null if neither is set
+     * @throws IOException if the configured file cannot be mapped
+     */
+    public static LocalBreachStore fromConfiguration(String property, String environmentVariable) throws IOException {
+        String location = System.getProperty(property, System.getenv(environmentVariable));
+        if (location == null || location.isEmpty()) {
+            return null;
+        }
+        return new LocalBreachStore(Paths.get(location));
+    }
+
+    /**
+     * Look up the breach count for a full SHA-1 hash
+     * @param sha1Hex 40 hex digits, either case
+     * @return Number of times the hash appears in breaches, 0 if absent
+     */
+    public long lookup(CharSequence sha1Hex) {
+        if (sha1Hex.length() != HASH_LENGTH) {
+            throw new IllegalArgumentException("Expected a 40 digit SHA-1 hash");
+        }
+
+        // Invariant: the matching line, if present, starts in [lo, hi)
+        long lo = 0;
+        long hi = size;
+        while (hi - lo > LINEAR_SCAN_WINDOW) {
+            long mid = (lo + hi) >>> 1;
+            long line = lineStartAtOrAfter(mid);
+            if (line >= hi) {
+                hi = mid;
+                continue;
+            }
+            int cmp = compareHash(line, sha1Hex);
+            if (cmp == 0) {
+                return parseCount(line + HASH_LENGTH + 1);
+            } else if (cmp < 0) {
+                lo = lineStartAtOrAfter(line + 1);
+            } else {
+                hi = line;
+            }
+        }
+
+        for (long line = lo; line < hi; line = lineStartAtOrAfter(line + 1)) {
+            int cmp = compareHash(line, sha1Hex);
+            if (cmp == 0) {
+                return parseCount(line + HASH_LENGTH + 1);
+            } else if (cmp > 0) {
+                break;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Look up a hash and wrap the result the same way the online API path does
+     * @param sha1Hex 40 hex digits, either case
+     * @return BreachInfo with the occurrence count
+     */
+    public BreachInfo getBreachInfo(CharSequence sha1Hex) {
+        long count = lookup(sha1Hex);
+        return new BreachInfo(count > 0, (int) Math.min(count, Integer.MAX_VALUE));
+    }
+
+    private byte byteAt(long position) {
+        return file.get(position);
+    }
+
+    // First line start at or after position (position itself if it begins a line)
+    private long lineStartAtOrAfter(long position) {
+        if (position == 0) {
+            return 0;
+        }
+        long p = position - 1;
+        while (p < size && byteAt(p) != '\n') {
+            p++;
+        }
+        return p + 1;
+    }
+
+    private int compareHash(long line, CharSequence sha1Hex) {
+        if (line + HASH_LENGTH > size) {
+            return 1; // Trailing partial line sorts after everything
+        }
+        for (int i = 0; i < HASH_LENGTH; i++) {
+            int a = upper(byteAt(line + i));
+            int b = upper(sha1Hex.charAt(i));
+            if (a != b) {
+                return a < b ? -1 : 1;
+            }
+        }
+        return 0;
+    }
+
+    private static int upper(int c) {
+        return (c >= 'a' && c <= 'f') ? c - ('a' - 'A') : c;
+    }
+
+    private long parseCount(long position) {
+        long count = 0;
+        while (position < size) {
+            byte b = byteAt(position++);
+            if (b < '0' || b > '9') {
+                break;
+            }
+            count = count * 10 + (b - '0');
+        }
+        return count;
+    }
+
+    public Path getPath() { return path; }
+    public long getSizeBytes() { return size; }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
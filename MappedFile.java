@@ -0,0 +1,117 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A file mapped into memory in 1 GiB segments, addressed with long offsets.
+ *
+ * A single MappedByteBuffer cannot exceed 2 GB; splitting the mapping lets
+ * the breach corpus and filter files grow to any size while staying off the
+ * Java heap. Reads are safe from multiple threads.
+ */
+public class MappedFile implements Closeable {
+    static final int SEGMENT_BITS = 30;
+    static final long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] segments;
+    private final long size;
+
+    private MappedFile(FileChannel channel, FileChannel.MapMode mode, long size) throws IOException {
+        this.channel = channel;
+        this.size = size;
+        int segmentCount = (int) ((size + SEGMENT_SIZE - 1) >>> SEGMENT_BITS);
+        this.segments = new MappedByteBuffer[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            long start = (long) i << SEGMENT_BITS;
+            segments[i] = channel.map(mode, start, Math.min(SEGMENT_SIZE, size - start));
+            segments[i].order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    /**
+     * Map an existing file read-only
+     * @param path File to map
+     * @return The mapping
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public static MappedFile openReadOnly(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new MappedFile(channel, FileChannel.MapMode.READ_ONLY, channel.size());
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Create (or truncate) a zero-filled file of the given size and map it read-write
+     * @param path File to create
+     * @param size Size in bytes
+     * @return The mapping
+     * @throws IOException if the file cannot be created or mapped
+     */
+    public static MappedFile create(Path path, long size) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                               StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            return new MappedFile(channel, FileChannel.MapMode.READ_WRITE, size);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public byte get(long position) {
+        return segments[(int) (position >>> SEGMENT_BITS)].get((int) (position & (SEGMENT_SIZE - 1)));
+    }
+
+    /**
+     * Read a little-endian int; must not straddle a segment boundary (keep it 4-byte aligned)
+     */
+    public int getInt(long position) {
+        return segments[(int) (position >>> SEGMENT_BITS)].getInt((int) (position & (SEGMENT_SIZE - 1)));
+    }
+
+    /**
+     * Write a little-endian int; must not straddle a segment boundary (keep it 4-byte aligned)
+     */
+    public void putInt(long position, int value) {
+        segments[(int) (position >>> SEGMENT_BITS)].putInt((int) (position & (SEGMENT_SIZE - 1)), value);
+    }
+
+    /**
+     * Read a little-endian long; must not straddle a segment boundary (keep it 8-byte aligned)
+     */
+    public long getLong(long position) {
+        return segments[(int) (position >>> SEGMENT_BITS)].getLong((int) (position & (SEGMENT_SIZE - 1)));
+    }
+
+    /**
+     * Write a little-endian long; must not straddle a segment boundary (keep it 8-byte aligned)
+     */
+    public void putLong(long position, long value) {
+        segments[(int) (position >>> SEGMENT_BITS)].putLong((int) (position & (SEGMENT_SIZE - 1)), value);
+    }
+
+    /**
+     * Flush written pages to disk
+     */
+    public void force() {
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+    }
+
+    public long size() { return size; }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,312 @@
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+/**
+ * Process-wide counters, gauges and per-stage latency histograms.
+ *
+ * Hot paths keep the handles they record into in static fields, so
+ * recording is a {@link LongAdder} increment or a lock-free
+ * {@link LatencyHistogram#record}; the registry itself is only consulted
+ * at class initialisation and when metrics are read.
+ *
+ * Everything is published two ways. Under JMX each stage is an MXBean
+ * named {@code PasswordChecker:type=Latency,name=STAGE}, and counters and
+ * gauges are attributes of {@code PasswordChecker:type=Counters}.
+ * Headless tools can also serve a plain-text scrape in the Prometheus
+ * exposition format at {@code /metrics}.
+ */
+public final class Metrics {
+    public static final String PREFIX = "passwordchecker_";
+    public static final String DOMAIN = "PasswordChecker";
+
+    private static final Metrics GLOBAL = new Metrics();
+
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentSkipListMap<>();
+    private final Map<String, Metric<LongAdder>> counters = new ConcurrentSkipListMap<>();
+    private final Map<String, Metric<DoubleSupplier>> gauges = new ConcurrentSkipListMap<>();
+
+    // Set once MBeans are registered; later histograms are registered as they are created
+    private volatile MBeanServer mbeanServer;
+
+    private Metrics() {
+    }
+
+    /**
+     * @return The registry shared by the whole process
+     */
+    public static Metrics global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Get or create the latency histogram for a stage
+     * @param stage Stage name, e.g. "hash" or "network"
+     * @return The stage's histogram
+     */
+    public LatencyHistogram histogram(String stage) {
+        LatencyHistogram histogram = histograms.get(stage);
+        if (histogram != null) {
+            return histogram;
+        }
+        LatencyHistogram created = new LatencyHistogram(stage);
+        histogram = histograms.putIfAbsent(stage, created);
+        if (histogram != null) {
+            return histogram;
+        }
+        MBeanServer server = mbeanServer;
+        if (server != null) {
+            registerHistogram(server, created);
+        }
+        return created;
+    }
+
+    /**
+     * Get or create a monotonically increasing counter
+     * @param name Counter name, without the "_total" suffix
+     * @param help One-line description for the scrape output
+     * @return The counter
+     */
+    public LongAdder counter(String name, String help) {
+        return counters.computeIfAbsent(name, key -> new Metric<>(help, new LongAdder())).value;
+    }
+
+    /**
+     * Register a value that is read when metrics are collected. A gauge
+     * registered again under the same name replaces the earlier one.
+     * @param name Gauge name
+     * @param help One-line description for the scrape output
+     * @param value Supplies the current value; must be cheap and thread-safe
+     */
+    public void gauge(String name, String help, DoubleSupplier value) {
+        gauges.put(name, new Metric<>(help, value));
+    }
+
+    /**
+     * Register the stage histograms and the counters with the platform
+     * MBean server; safe to call more than once
+     */
+    public synchronized void registerMBeans() {
+        if (mbeanServer != null) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName countersName = new ObjectName(DOMAIN + ":type=Counters");
+            if (!server.isRegistered(countersName)) {
+                server.registerMBean(new CountersMBean(), countersName);
+            }
+        } catch (JMException e) {
+            System.err.println("Unable to register metrics MBean: " + e.getMessage());
+        }
+        mbeanServer = server;
+        for (LatencyHistogram histogram : histograms.values()) {
+            registerHistogram(server, histogram);
+        }
+    }
+
+    private static void registerHistogram(MBeanServer server, LatencyHistogram histogram) {
+        try {
+            ObjectName name = new ObjectName(DOMAIN + ":type=Latency,name=" + ObjectName.quote(histogram.getName()));
+            if (!server.isRegistered(name)) {
+                server.registerMBean(histogram, name);
+            }
+        } catch (JMException e) {
+            System.err.println("Unable to register latency MBean " + histogram.getName() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Serve the scrape text at /metrics on a background thread
+     * @param port TCP port to listen on (0 for any free port)
+     * @return The running server; stop it to close the port
+     * @throws IOException if the port cannot be bound
+     */
+    public HttpServer startScrapeEndpoint(int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+        mount(server);
+        server.setExecutor(Executors.newSingleThreadExecutor(BreachLookupExecutor.daemonThreads("metrics-scrape")));
+        server.start();
+        return server;
+    }
+
+    /**
+     * Serve the scrape text at /metrics on a server the caller already runs
+     * @param server Server to add the context to
+     */
+    public void mount(HttpServer server) {
+        server.createContext("/metrics", exchange -> {
+            byte[] body = scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+    }
+
+    /**
+     * Publish metrics the way headless tools do: register the MBeans unless
+     * the metrics.jmx system property is false, and serve the scrape text if
+     * the metrics.port system property or METRICS_PORT environment variable
+     * names a port
+     */
+    public static void exposeFromConfiguration() {
+        if (!"false".equalsIgnoreCase(System.getProperty("metrics.jmx"))) {
+            GLOBAL.registerMBeans();
+        }
+        String port = System.getProperty("metrics.port", System.getenv("METRICS_PORT"));
+        if (port == null || port.isEmpty()) {
+            return;
+        }
+        try {
+            HttpServer server = GLOBAL.startScrapeEndpoint(Integer.parseInt(port.trim()));
+            System.err.println("Serving metrics at http://localhost:" + server.getAddress().getPort() + "/metrics");
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("Unable to serve metrics on port " + port + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return Every metric in the Prometheus text exposition format
+     */
+    public String scrape() {
+        StringBuilder out = new StringBuilder(4096);
+        for (Map.Entry<String, Metric<LongAdder>> counter : counters.entrySet()) {
+            String name = PREFIX + counter.getKey() + "_total";
+            header(out, name, counter.getValue().help, "counter");
+            out.append(name).append(' ').append(counter.getValue().value.sum()).append('\n');
+        }
+        for (Map.Entry<String, Metric<DoubleSupplier>> gauge : gauges.entrySet()) {
+            String name = PREFIX + gauge.getKey();
+            header(out, name, gauge.getValue().help, "gauge");
+            out.append(name).append(' ');
+            number(out, gauge.getValue().value.getAsDouble()).append('\n');
+        }
+        if (!histograms.isEmpty()) {
+            String name = PREFIX + "stage_latency_seconds";
+            header(out, name, "Latency of each analysis and breach-check stage", "summary");
+            StringBuilder maxima = new StringBuilder();
+            for (LatencyHistogram histogram : histograms.values()) {
+                LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+                String stage = "stage=\"" + histogram.getName() + "\"";
+                for (double quantile : new double[] {0.5, 0.9, 0.99, 0.999}) {
+                    out.append(name).append('{').append(stage).append(",quantile=\"").append(quantile).append("\"} ");
+                    number(out, snapshot.getPercentile(quantile * 100) / 1e9).append('\n');
+                }
+                out.append(name).append("_sum{").append(stage).append("} ");
+                number(out, snapshot.getSum() / 1e9).append('\n');
+                out.append(name).append("_count{").append(stage).append("} ").append(snapshot.getCount()).append('\n');
+                maxima.append(PREFIX).append("stage_latency_max_seconds{").append(stage).append("} ");
+                number(maxima, snapshot.getMax() / 1e9).append('\n');
+            }
+            header(out, PREFIX + "stage_latency_max_seconds", "Slowest recorded latency of each stage", "gauge");
+            out.append(maxima);
+        }
+        return out.toString();
+    }
+
+    private static void header(StringBuilder out, String name, String help, String type) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    // Whole numbers without a fraction, everything else in Java's shortest round-trip form
+    private static StringBuilder number(StringBuilder out, double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return out.append((long) value);
+        }
+        return out.append(value);
+    }
+
+    private static final class Metric<T> {
+        final String help;
+        final T value;
+
+        Metric(String help, T value) {
+            this.help = help;
+            this.value = value;
+        }
+    }
+
+    // Counters and gauges as read-only attributes, looked up by name on every read
+    private final class CountersMBean implements DynamicMBean {
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            Metric<LongAdder> counter = counters.get(attribute);
+            if (counter != null) {
+                return counter.value.sum();
+            }
+            Metric<DoubleSupplier> gauge = gauges.get(attribute);
+            if (gauge != null) {
+                return gauge.value.getAsDouble();
+            }
+            throw new AttributeNotFoundException(attribute);
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            AttributeList list = new AttributeList();
+            for (String attribute : attributes) {
+                try {
+                    list.add(new Attribute(attribute, getAttribute(attribute)));
+                } catch (AttributeNotFoundException e) {
+                    // Skipped, as the DynamicMBean contract allows
+                }
+            }
+            return list;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("Metrics are read-only: " + attribute.getName());
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+            throw new ReflectionException(new NoSuchMethodException(actionName), "Metrics have no operations");
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            List<MBeanAttributeInfo> attributes = new ArrayList<>();
+            for (Map.Entry<String, Metric<LongAdder>> counter : counters.entrySet()) {
+                attributes.add(new MBeanAttributeInfo(counter.getKey(), "long", counter.getValue().help,
+                                                      true, false, false));
+            }
+            for (Map.Entry<String, Metric<DoubleSupplier>> gauge : gauges.entrySet()) {
+                attributes.add(new MBeanAttributeInfo(gauge.getKey(), "double", gauge.getValue().help,
+                                                      true, false, false));
+            }
+            return new MBeanInfo(getClass().getName(), "Password checker counters and gauges",
+                                 attributes.toArray(new MBeanAttributeInfo[0]), null, null, null);
+        }
+    }
+}
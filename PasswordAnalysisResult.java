@@ -0,0 +1,43 @@
+import java.util.List;
+
+// Result class to hold analysis data
+public class PasswordAnalysisResult {
+    private final int score;
+    private final String strengthCategory;
+    private final int length;
+    private final int characterTypes;
+    private final double entropy;
+    private final boolean hasCommonPatterns;
+    private final boolean isInWeakDictionary;
+    private final String detectedPatterns;
+    private final List<String> recommendations;
+    private final boolean isBreached;
+    
+    public PasswordAnalysisResult(int score, String strengthCategory, int length, 
+                               int characterTypes, double entropy, boolean hasCommonPatterns,
+                               boolean isInWeakDictionary, String detectedPatterns, 
+                               List<String> recommendations, boolean isBreached) {
+        this.score = score;
+        this.strengthCategory = strengthCategory;
+        this.length = length;
+        this.characterTypes = characterTypes;
+        this.entropy = entropy;
+        this.hasCommonPatterns = hasCommonPatterns;
+        this.isInWeakDictionary = isInWeakDictionary;
+        this.detectedPatterns = detectedPatterns;
+        this.recommendations = recommendations;
+        this.isBreached = isBreached;
+    }
+    
+    // Getters
+    public int getScore() { return score; }
+    public String getStrengthCategory() { return strengthCategory; }
+    public int getLength() { return length; }
+    public int getCharacterTypes() { return characterTypes; }
+    public double getEntropy() { return entropy; }
+    public boolean hasCommonPatterns() { return hasCommonPatterns; }
+    public boolean isInWeakDictionary() { return isInWeakDictionary; }
+    public String getDetectedPatterns() { return detectedPatterns; }
+    public List<String> getRecommendations() { return recommendations; }
+    public boolean isBreached() { return isBreached; }
+}
@@ -0,0 +1,219 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Headless batch audit: streams newline-delimited passwords through
+ * {@link PasswordStrengthAnalyzer} and writes one tab-separated report line
+ * per input line. Passwords are never echoed; rows are keyed by line number.
+ *
+ * Usage: java PasswordAudit [--breach] [input-file | -] > report.tsv
+ *
+ * Input is read line by line and each row is written as soon as it is
+ * scored, so memory use does not depend on the size of the input.
+ * With --breach, rows are also checked against breached passwords, in
+ * chunks of audit.batchSize lines (default 100000): each chunk fetches
+ * every range it needs once, audit.breachConcurrency at a time (default
+ * the transport's request limit), and the summary reports how many
+ * upstream requests that saved.
+ * A summary with throughput is printed to stderr at the end. Set the
+ * metrics.port system property (or METRICS_PORT) to watch a long audit
+ * through the /metrics scrape endpoint while it runs.
+ */
+public class PasswordAudit {
+    private static final int IO_BUFFER_SIZE = 1 << 16;
+    private static final int DEFAULT_BATCH_SIZE = 100_000;
+
+    private final PasswordStrengthAnalyzer analyzer = new PasswordStrengthAnalyzer();
+    private final StringBuilder row = new StringBuilder(128);
+    // Null unless breach checks were requested
+    private final HIBPClient breachClient;
+    private final int batchSize;
+    private final int breachConcurrency;
+
+    private long processed;
+    private long weak;
+    private long medium;
+    private long strong;
+    private long withPatterns;
+    private long inDictionary;
+    private long breached;
+    private long breachUnknown;
+    private long prefixes;
+    private long rangeLookups;
+    private long upstreamRequests;
+    private long breachFiltered;
+
+    public PasswordAudit() {
+        this(null, DEFAULT_BATCH_SIZE, 1);
+    }
+
+    /**
+     * @param breachClient Client for breach checks, or null to score strength only
+     * @param batchSize Passwords per breach batch; larger batches share more ranges
+     * @param breachConcurrency Prefix groups resolved in parallel within a batch
+     */
+    public PasswordAudit(HIBPClient breachClient, int batchSize, int breachConcurrency) {
+        this.breachClient = breachClient;
+        this.batchSize = batchSize;
+        this.breachConcurrency = breachConcurrency;
+    }
+
+    public static void main(String[] args) {
+        boolean breach = args.length > 0 && args[0].equals("--breach");
+        int first = breach ? 1 : 0;
+        if (args.length > first + 1
+                || (args.length == first + 1 && (args[first].equals("-h") || args[first].equals("--help")))) {
+            System.err.println("Usage: java PasswordAudit [--breach] [input-file | -]");
+            System.err.println("Reads one password per line (stdin if no file is given) and writes");
+            System.err.println("a tab-separated strength report to stdout. --breach adds breach checks.");
+            System.exit(args.length > first + 1 ? 2 : 0);
+        }
+
+        String source = args.length == first ? "-" : args[first];
+        Metrics.exposeFromConfiguration();
+        PasswordAudit audit = new PasswordAudit();
+        if (breach) {
+            HIBPClient client = HIBPClient.fromConfiguration();
+            audit = new PasswordAudit(client, Integer.getInteger("audit.batchSize", DEFAULT_BATCH_SIZE),
+                                      Integer.getInteger("audit.breachConcurrency",
+                                                         client.getTransport().getMaxConcurrentRequests()));
+        }
+        long start = System.nanoTime();
+        try (InputStream in = source.equals("-") ? System.in : new FileInputStream(source)) {
+            Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), IO_BUFFER_SIZE);
+            audit.run(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), IO_BUFFER_SIZE), out);
+            out.flush();
+        } catch (IOException e) {
+            System.err.println("Audit failed: " + e.getMessage());
+            System.exit(1);
+        }
+        audit.printSummary(System.nanoTime() - start);
+    }
+
+    /**
+     * Score every line of the input and write one report row per line
+     * @param in Newline-delimited passwords
+     * @param out Destination for the tab-separated report
+     * @throws IOException if reading or writing fails
+     */
+    public void run(BufferedReader in, Writer out) throws IOException {
+        out.write("line\tscore\tstrength\tentropy\tcommon_patterns\tweak_dictionary\tdetected_patterns"
+                  + (breachClient != null ? "\tbreached\tbreach_count\n" : "\n"));
+        String password;
+        if (breachClient == null) {
+            while ((password = in.readLine()) != null) {
+                scoreRow(password);
+                out.append(row.append('\n'));
+            }
+            return;
+        }
+
+        List<String> batch = new ArrayList<>(Math.min(batchSize, 1 << 16));
+        while ((password = in.readLine()) != null) {
+            batch.add(password);
+            if (batch.size() == batchSize) {
+                auditBatch(batch, out);
+                batch.clear();
+            }
+        }
+        auditBatch(batch, out);
+    }
+
+    // Check a batch for breaches, then write its rows in input order
+    private void auditBatch(List<String> batch, Writer out) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        BatchBreachResult breaches;
+        try {
+            breaches = breachClient.getBreachInfoAll(batch, breachConcurrency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Breach checks interrupted");
+        }
+        prefixes += breaches.getPrefixes();
+        rangeLookups += breaches.getRangeLookups();
+        upstreamRequests += breaches.getUpstreamRequests();
+        breachFiltered += breaches.getFiltered();
+
+        for (int i = 0; i < batch.size(); i++) {
+            scoreRow(batch.get(i));
+            BreachInfo info = breaches.get(i);
+            if (info == null) {
+                breachUnknown++;
+                row.append("\t\t");
+            } else {
+                if (info.isPwned()) breached++;
+                row.append('\t').append(info.isPwned()).append('\t').append(info.getOccurrenceCount());
+            }
+            out.append(row.append('\n'));
+        }
+    }
+
+    // Score one password into the row buffer, without the line terminator
+    private void scoreRow(String password) {
+        processed++;
+        PasswordAnalysisResult result = analyzer.analyzePassword(password);
+        record(result);
+
+        row.setLength(0);
+        row.append(processed).append('\t')
+           .append(result.getScore()).append('\t')
+           .append(result.getStrengthCategory()).append('\t');
+        appendOneDecimal(row, result.getEntropy());
+        row.append('\t')
+           .append(result.hasCommonPatterns()).append('\t')
+           .append(result.isInWeakDictionary()).append('\t')
+           .append(result.getDetectedPatterns());
+    }
+
+    private void record(PasswordAnalysisResult result) {
+        switch (result.getStrengthCategory()) {
+            case "Weak": weak++; break;
+            case "Medium": medium++; break;
+            case "Strong": strong++; break;
+            default: break;
+        }
+        if (result.hasCommonPatterns()) withPatterns++;
+        if (result.isInWeakDictionary()) inDictionary++;
+    }
+
+    // Entropy to one decimal place, without the String.format overhead
+    private static void appendOneDecimal(StringBuilder sb, double value) {
+        long tenths = Math.round(value * 10);
+        sb.append(tenths / 10).append('.').append(tenths % 10);
+    }
+
+    private void printSummary(long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        double perMinute = seconds > 0 ? processed / seconds * 60 : 0;
+        System.err.println("Audited " + processed + " passwords in " + String.format("%.2f", seconds) + " s"
+                           + " (" + String.format("%,.0f", perMinute) + " passwords/minute)");
+        System.err.println("  Weak: " + weak + ", Medium: " + medium + ", Strong: " + strong);
+        System.err.println("  Common patterns: " + withPatterns + ", Weak dictionary: " + inDictionary);
+        WeakPasswordDictionary dictionary = analyzer.getWeakPasswords();
+        System.err.println("  Dictionary: " + dictionary.size() + " words, " + dictionary.getSizeBytes() + " bytes "
+                           + (dictionary.isMapped() ? "mapped" : "on heap") + ", loaded in "
+                           + String.format("%.1f", dictionary.getLoadMillis()) + " ms");
+        if (breachClient != null) {
+            System.err.println("  Breached: " + breached + (breachUnknown > 0 ? ", unknown (range failed): " + breachUnknown : ""));
+            System.err.println("  Breach lookups: " + rangeLookups + " needed a range, " + prefixes + " distinct prefixes, "
+                               + upstreamRequests + " upstream requests (" + (rangeLookups - upstreamRequests)
+                               + " saved), " + breachFiltered + " ruled out by the pre-filter");
+        }
+        LatencyHistogram.Snapshot analysis = Metrics.global().histogram("analysis").snapshot();
+        System.err.println("  Analysis latency: p50 " + String.format("%.2f", analysis.getPercentile(50) / 1e3)
+                           + " us, p99 " + String.format("%.2f", analysis.getPercentile(99) / 1e3)
+                           + " us, max " + String.format("%.2f", analysis.getMax() / 1e3) + " us");
+    }
+}
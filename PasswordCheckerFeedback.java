@@ -0,0 +1,133 @@
+import javafx.geometry.Pos;
+import javafx.scene.control.Label;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The "Analysis Details" list shown under the strength bar.
+ *
+ * All labels are created once. An update only changes their text and
+ * colour, and hides the rows that do not apply, so typing does not
+ * rebuild the scene graph or trigger a fresh CSS pass for new nodes.
+ * JavaFX ignores a set to the current value, so rows whose content did
+ * not change are not laid out again. Recommendation rows are added the
+ * first time more are needed and then kept. An update whose content
+ * matches the previous one returns at once.
+ *
+ * Use from the FX thread only.
+ */
+public class PasswordCheckerFeedback extends VBox {
+    private static final Font BOLD = Font.font("Arial", FontWeight.BOLD, 12);
+
+    private final Label lengthLabel = new Label();
+    private final Label varietyLabel = new Label();
+    private final Label entropyLabel = new Label();
+    private final Label patternLabel = row(Color.ORANGE);
+    private final Label dictLabel = row(Color.RED);
+    private final Label breachLabel = row(Color.RED);
+    private final Label recTitle = row(Color.DARKBLUE);
+    private final List<Label> recLabels = new ArrayList<>();
+    private final boolean showBreach;
+
+    // The result currently displayed, for the dirty check
+    private PasswordAnalysisResult shown;
+
+    /**
+     * @param prefWidth Preferred width of the list
+     * @param showBreach Whether to show a warning row for breached passwords
+     */
+    public PasswordCheckerFeedback(double prefWidth, boolean showBreach) {
+        super(5);
+        this.showBreach = showBreach;
+        setAlignment(Pos.CENTER_LEFT);
+        setPrefWidth(prefWidth);
+
+        dictLabel.setText("⚠ Password found in common weak passwords list");
+        breachLabel.setText("🚨 CRITICAL: Password found in data breaches!");
+        breachLabel.setFont(BOLD);
+        recTitle.setText("Recommendations:");
+        recTitle.setFont(BOLD);
+        getChildren().addAll(lengthLabel, varietyLabel, entropyLabel, patternLabel, dictLabel, breachLabel, recTitle);
+    }
+
+    private static Label row(Color fill) {
+        Label label = new Label();
+        label.setTextFill(fill);
+        setShown(label, false);
+        return label;
+    }
+
+    // Hidden rows are also unmanaged so they take no space in the layout
+    private static void setShown(Label label, boolean shown) {
+        label.setVisible(shown);
+        label.setManaged(shown);
+    }
+
+    /**
+     * Show the details of an analysis, touching only the rows that changed
+     * @param result The analysis to display
+     */
+    public void update(PasswordAnalysisResult result) {
+        if (shown != null && sameContent(shown, result)) {
+            shown = result;
+            return;
+        }
+        shown = result;
+
+        // Length feedback
+        lengthLabel.setText("✓ Length: " + result.getLength() + " characters " +
+            (result.getLength() >= 8 ? "(Good)" : "(Too short - minimum 8 recommended)"));
+        lengthLabel.setTextFill(result.getLength() >= 8 ? Color.GREEN : Color.RED);
+
+        // Character variety feedback
+        varietyLabel.setText("✓ Character Variety: " + result.getCharacterTypes() + " types used");
+        varietyLabel.setTextFill(result.getCharacterTypes() >= 3 ? Color.GREEN : Color.ORANGE);
+
+        // Entropy feedback
+        entropyLabel.setText("✓ Entropy: " + String.format("%.1f", result.getEntropy()) + " bits");
+        entropyLabel.setTextFill(result.getEntropy() >= 50 ? Color.GREEN :
+                                 result.getEntropy() >= 30 ? Color.ORANGE : Color.RED);
+
+        // Pattern, dictionary and breach warnings
+        if (result.hasCommonPatterns()) {
+            patternLabel.setText("⚠ Common patterns detected: " + result.getDetectedPatterns());
+        }
+        setShown(patternLabel, result.hasCommonPatterns());
+        setShown(dictLabel, result.isInWeakDictionary());
+        setShown(breachLabel, showBreach && result.isBreached());
+
+        // Recommendations
+        List<String> recommendations = result.getRecommendations();
+        setShown(recTitle, !recommendations.isEmpty());
+        while (recLabels.size() < recommendations.size()) {
+            Label recLabel = row(Color.DARKBLUE);
+            recLabels.add(recLabel);
+            getChildren().add(recLabel);
+        }
+        for (int i = 0; i < recLabels.size(); i++) {
+            Label recLabel = recLabels.get(i);
+            if (i < recommendations.size()) {
+                recLabel.setText("• " + recommendations.get(i));
+            }
+            setShown(recLabel, i < recommendations.size());
+        }
+    }
+
+    // True if both results render identically, so the labels can be left alone
+    private boolean sameContent(PasswordAnalysisResult a, PasswordAnalysisResult b) {
+        return a == b
+            || a.getLength() == b.getLength()
+               && a.getCharacterTypes() == b.getCharacterTypes()
+               && a.getEntropy() == b.getEntropy()
+               && a.hasCommonPatterns() == b.hasCommonPatterns()
+               && Objects.equals(a.getDetectedPatterns(), b.getDetectedPatterns())
+               && a.isInWeakDictionary() == b.isInWeakDictionary()
+               && (!showBreach || a.isBreached() == b.isBreached())
+               && a.getRecommendations().equals(b.getRecommendations());
+    }
+}
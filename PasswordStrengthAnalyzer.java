@@ -0,0 +1,236 @@
+import java.util.*;
+
+/**
+ * Password strength analysis: length, character variety, common patterns,
+ * weak-dictionary membership and entropy, combined into a 0-100 score.
+ * Has no UI dependencies, so the JavaFX applications and headless tools share it.
+ */
+public class PasswordStrengthAnalyzer {
+    
+    // Weak-password dictionary from weak.dictionary / WEAK_DICTIONARY, or the built-in list
+    private static final WeakPasswordDictionary DEFAULT_DICTIONARY = WeakPasswordDictionary.fromConfiguration();
+    // Words searched for inside passwords, from weak.substrings / WEAK_SUBSTRINGS, or the built-in list
+    private static final DictionaryWords DEFAULT_WORDS = DictionaryWords.fromConfiguration();
+    
+    // Reusable per-thread scan tables, so profiling does not allocate
+    private static final ThreadLocal<CharacterProfile> PROFILE =
+        ThreadLocal.withInitial(CharacterProfile::new);
+    
+    private static final LatencyHistogram ANALYSIS_LATENCY = Metrics.global().histogram("analysis");
+    
+    private final WeakPasswordDictionary weakPasswords;
+    private final DictionaryWords dictionaryWords;
+    
+    public PasswordStrengthAnalyzer() {
+        this(DEFAULT_DICTIONARY, DEFAULT_WORDS);
+    }
+    
+    /**
+     * @param weakPasswords Dictionary of known weak passwords to check against
+     */
+    public PasswordStrengthAnalyzer(WeakPasswordDictionary weakPasswords) {
+        this(weakPasswords, DEFAULT_WORDS);
+    }
+    
+    /**
+     * @param weakPasswords Dictionary of known weak passwords to check against
+     * @param dictionaryWords Words to look for inside passwords
+     */
+    public PasswordStrengthAnalyzer(WeakPasswordDictionary weakPasswords, DictionaryWords dictionaryWords) {
+        this.weakPasswords = weakPasswords;
+        this.dictionaryWords = dictionaryWords;
+    }
+    
+    /**
+     * @return The weak-password dictionary in use
+     */
+    public WeakPasswordDictionary getWeakPasswords() {
+        return weakPasswords;
+    }
+    
+    /**
+     * @return The words looked for inside passwords
+     */
+    public DictionaryWords getDictionaryWords() {
+        return dictionaryWords;
+    }
+    
+    public PasswordAnalysisResult analyzePassword(String password) {
+        if (password == null || password.isEmpty()) {
+            return new PasswordAnalysisResult(0, "Not Analyzed", 0, 0, 0, false, false, "", new ArrayList<>(), false);
+        }
+        
+        long start = System.nanoTime();
+        TraceEvents.Analysis event = new TraceEvents.Analysis();
+        event.begin();
+        
+        // Single pass over the characters, shared by every check below
+        CharacterProfile profile = PROFILE.get().reset(password);
+        // Single automaton scan for every known sequence and keyboard walk
+        int patternCategories = CommonPatterns.scan(password);
+        
+        boolean isInWeakDictionary = weakPasswords.contains(password);
+        // Dictionary words inside the password; a whole-password match is already penalised as weak
+        int wordCategories = isInWeakDictionary ? 0 : dictionaryWords.scan(password);
+        
+        PasswordAnalysisResult result = score(profile, patternCategories, wordCategories, isInWeakDictionary);
+        ANALYSIS_LATENCY.recordSince(start);
+        if (event.shouldCommit()) {
+            event.score = result.getScore();
+            event.strength = result.getStrengthCategory();
+            event.commit();
+        }
+        return result;
+    }
+    
+    /**
+     * Score a password from the results of its scans; shared with {@link IncrementalAnalysis}
+     * @param profile Character profile of the password
+     * @param patternCategories Result of {@link CommonPatterns#scan}
+     * @param wordCategories Result of {@link DictionaryWords#scan}, or 0 for a weak-dictionary match
+     * @param isInWeakDictionary Whether the whole password is a listed weak password
+     * @return The analysis result
+     */
+    PasswordAnalysisResult score(CharacterProfile profile, int patternCategories, int wordCategories,
+                                 boolean isInWeakDictionary) {
+        int length = profile.getLength();
+        int characterTypes = profile.getCharacterTypes();
+        boolean hasCommonPatterns = hasCommonPatterns(patternCategories, wordCategories, profile);
+        double entropy = calculateEntropy(profile);
+        String detectedPatterns = getDetectedPatterns(patternCategories, wordCategories, profile);
+        boolean isBreached = false; // Will be updated by HIBP check
+        
+        // Calculate score
+        int score = calculateScore(length, characterTypes, hasCommonPatterns, isInWeakDictionary, entropy, isBreached);
+        
+        // Determine strength category
+        String strengthCategory = getStrengthCategory(score);
+        
+        // Generate recommendations
+        List<String> recommendations = generateRecommendations(length, characterTypes, hasCommonPatterns, isInWeakDictionary,
+                                                               wordCategories != 0, isBreached);
+        
+        return new PasswordAnalysisResult(
+            score, strengthCategory, length, characterTypes, entropy,
+            hasCommonPatterns, isInWeakDictionary, detectedPatterns, recommendations, isBreached
+        );
+    }
+    
+    boolean hasCommonPatterns(int patternCategories, int wordCategories, CharacterProfile profile) {
+        // Sequential and keyboard patterns, embedded dictionary words, or repeated characters
+        return patternCategories != 0 || wordCategories != 0 || profile.hasRepeatedCharacters();
+    }
+    
+    private String getDetectedPatterns(int patternCategories, int wordCategories, CharacterProfile profile) {
+        List<String> patterns = new ArrayList<>();
+        CommonPatterns.addCategoryNames(patternCategories, patterns);
+        DictionaryWords.addCategoryNames(wordCategories, patterns);
+        
+        // Check for repeated characters
+        if (profile.hasRepeatedCharacters()) {
+            patterns.add("Repeated characters");
+        }
+        
+        return String.join(", ", patterns);
+    }
+    
+    // This and hasCommonPatterns are package-private so the benchmarks in jmh/ can time them alone
+    double calculateEntropy(CharacterProfile profile) {
+        double entropy = profile.getShannonEntropy();
+        int length = profile.getLength();
+        
+        // Calculate theoretical maximum entropy based on character set
+        int charsetSize = profile.getCharacterSetSize();
+        double maxEntropy = CharacterProfile.log2(charsetSize);
+        double theoreticalMax = maxEntropy * length;
+        
+        // Use the actual entropy, but cap it at theoretical maximum
+        double actualEntropy = entropy * length;
+        
+        // Bonus for using all character types
+        if (profile.getCharacterTypes() == 4) {
+            actualEntropy *= 1.1; // 10% bonus for using all character types
+        }
+        
+        return Math.min(actualEntropy, theoreticalMax);
+    }
+    
+    private int calculateScore(int length, int characterTypes, boolean hasCommonPatterns, 
+                             boolean isInWeakDictionary, double entropy, boolean isBreached) {
+        int score = 0;
+        
+        // Length scoring (0-35 points) 
+        if (length >= 16) score += 35;      
+        else if (length >= 12) score += 30;
+        else if (length >= 8) score += 20;
+        else if (length >= 6) score += 10;
+        
+        // Character variety scoring (0-30 points) 
+        score += characterTypes * 7.5;     
+        
+        // Entropy scoring (0-35 points) 
+        if (entropy >= 80) score += 35;   
+        else if (entropy >= 60) score += 30;
+        else if (entropy >= 40) score += 25;
+        else if (entropy >= 30) score += 20;
+        else if (entropy >= 20) score += 15;
+        else if (entropy >= 10) score += 10;
+        
+        // Bonus points for exceptional passwords (up to 10 points)
+        if (length >= 16 && characterTypes == 4 && entropy >= 60 && !hasCommonPatterns && !isInWeakDictionary) {
+            score += 10;  
+        }
+        
+        // Penalties (reduced to allow higher scores)
+        if (hasCommonPatterns) score -= 10;  
+        if (isInWeakDictionary) score -= 15;
+        if (isBreached) score -= 25;  // Severe penalty for breached passwords
+        
+        return Math.max(0, Math.min(100, score));
+    }
+    
+    private String getStrengthCategory(int score) {
+        if (score >= 70) return "Strong";
+        else if (score >= 40) return "Medium";
+        else return "Weak";
+    }
+    
+    private List<String> generateRecommendations(int length, int characterTypes, 
+                                               boolean hasCommonPatterns, boolean isInWeakDictionary,
+                                               boolean containsDictionaryWord, boolean isBreached) {
+        List<String> recommendations = new ArrayList<>();
+        
+        if (length < 8) {
+            recommendations.add("Use at least 8 characters");
+        }
+        if (characterTypes < 3) {
+            recommendations.add("Use a mix of letters, numbers, and symbols");
+        }
+        if (hasCommonPatterns) {
+            recommendations.add("Avoid common patterns and sequences");
+        }
+        if (isInWeakDictionary) {
+            recommendations.add("Choose a more unique password");
+        }
+        if (containsDictionaryWord) {
+            recommendations.add("Avoid common words, even with letters swapped for numbers or symbols");
+        }
+        if (length < 12) {
+            recommendations.add("Consider using 12+ characters for better security");
+        }
+        if (length < 16) {
+            recommendations.add("Use 16+ characters for maximum score (35 points)");
+        }
+        if (characterTypes < 4) {
+            recommendations.add("Use all character types (lowercase, uppercase, digits, symbols) for maximum variety");
+        }
+        if (isBreached) {
+            recommendations.add("🚨 CRITICAL: This password has been found in data breaches - CHANGE IMMEDIATELY!");
+        }
+        if (length >= 16 && characterTypes == 4 && !hasCommonPatterns && !isInWeakDictionary && !isBreached) {
+            recommendations.add("Excellent! This password meets all criteria for maximum security");
+        }
+        
+        return recommendations;
+    }
+}
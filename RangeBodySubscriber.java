@@ -0,0 +1,140 @@
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.function.Supplier;
+
+/**
+ * Feeds an HTTP response body into a {@link RangeData.LineParser} as the
+ * network buffers arrive, so the body is never copied into a String.
+ *
+ * When the parser has its answer early (a single-suffix search), the result
+ * is published immediately. The rest of the body is still drained without
+ * parsing, so an HTTP/1.1 connection can go back to the pool instead of
+ * being torn down.
+ *
+ * @param <T> Parsed result type
+ */
+class RangeBodySubscriber<T> implements HttpResponse.BodySubscriber<T> {
+    // CPU time spent parsing one body, excluding the wait for network buffers
+    private static final LatencyHistogram PARSE_LATENCY = Metrics.global().histogram("parse");
+
+    private final RangeData.LineParser parser;
+    private final Supplier<T> result;
+    // Range prefix, for tracing only
+    private final String prefix;
+    private final CompletableFuture<T> body = new CompletableFuture<>();
+    private final TraceEvents.RangeParse event = new TraceEvents.RangeParse();
+    private Flow.Subscription subscription;
+    private long parseNanos;
+    private long bytes;
+
+    private RangeBodySubscriber(RangeData.LineParser parser, Supplier<T> result, String prefix) {
+        this.parser = parser;
+        this.result = result;
+        this.prefix = prefix;
+    }
+
+    /**
+     * @param prefix The 5-digit prefix the range was fetched for
+     * @return Handler that parses the whole range into compact range data
+     */
+    static HttpResponse.BodyHandler<RangeData> rangeData(String prefix) {
+        return info -> {
+            RangeData.Builder builder = new RangeData.Builder();
+            return new RangeBodySubscriber<>(builder, builder::build, prefix);
+        };
+    }
+
+    /**
+     * @param prefix The 5-digit prefix the range was fetched for
+     * @param suffixHex The 35 hex digits after the 5-digit prefix
+     * @return Handler that yields the suffix's occurrence count, 0 if absent
+     */
+    static HttpResponse.BodyHandler<Integer> count(String prefix, CharSequence suffixHex) {
+        return info -> {
+            RangeData.Search search = new RangeData.Search(suffixHex);
+            return new RangeBodySubscriber<>(search, search::getCount, prefix);
+        };
+    }
+
+    /**
+     * @param hash SHA-1 hash bytes whose suffix is searched for
+     * @param offset Position of the hash in the array
+     * @return Handler that yields the hash's occurrence count, 0 if absent
+     */
+    static HttpResponse.BodyHandler<Integer> count(byte[] hash, int offset) {
+        String prefix = Sha1Hasher.prefixHex(Sha1Hasher.prefix(hash, offset));
+        return info -> {
+            RangeData.Search search = new RangeData.Search(hash, offset);
+            return new RangeBodySubscriber<>(search, search::getCount, prefix);
+        };
+    }
+
+    @Override
+    public CompletionStage<T> getBody() {
+        return body;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        event.begin();
+        this.subscription = subscription;
+        subscription.request(1);
+    }
+
+    @Override
+    public void onNext(List<ByteBuffer> buffers) {
+        if (!body.isDone()) {
+            long start = System.nanoTime();
+            boolean finished = false;
+            try {
+                for (ByteBuffer buffer : buffers) {
+                    bytes += buffer.remaining();
+                    if (!parser.accept(buffer)) {
+                        finished = true;
+                        break;
+                    }
+                }
+            } catch (RuntimeException e) {
+                subscription.cancel();
+                body.completeExceptionally(e);
+                return;
+            }
+            parseNanos += System.nanoTime() - start;
+            if (finished) {
+                complete(true);
+            }
+        }
+        subscription.request(1);
+    }
+
+    private void complete(boolean stoppedEarly) {
+        long start = System.nanoTime();
+        T value = result.get();
+        parseNanos += System.nanoTime() - start;
+        PARSE_LATENCY.record(parseNanos);
+        if (event.shouldCommit()) {
+            event.prefix = prefix;
+            event.parseTime = parseNanos;
+            event.bytes = bytes;
+            event.stoppedEarly = stoppedEarly;
+            event.commit();
+        }
+        body.complete(value);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        body.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        if (!body.isDone()) {
+            complete(false);
+        }
+    }
+}
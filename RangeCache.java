@@ -0,0 +1,201 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded LRU cache of parsed HIBP range responses, keyed by the 5-digit
+ * hash prefix.
+ *
+ * Entries expire after a configurable TTL. The least recently used ranges
+ * are evicted once the total footprint of the cached {@link RangeData}
+ * exceeds the byte budget. A budget of 0 disables caching. Hit, miss,
+ * eviction and expiry counters are exposed for monitoring.
+ */
+public class RangeCache {
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+    public static final long DEFAULT_TTL_SECONDS = 3600;
+
+    private final long maxBytes;
+    private final long ttlNanos;
+
+    // Access-ordered: iteration starts at the least recently used entry
+    private final LinkedHashMap<Integer, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long currentBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+
+    private static class Entry {
+        final RangeData range;
+        final long expiresAt;
+
+        Entry(RangeData range, long expiresAt) {
+            this.range = range;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * @param maxBytes Budget for cached range data in bytes (0 disables the cache)
+     * @param ttl Time a range stays valid after it was fetched
+     * @param unit Unit of the TTL
+     */
+    public RangeCache(long maxBytes, long ttl, TimeUnit unit) {
+        this.maxBytes = maxBytes;
+        this.ttlNanos = unit.toNanos(ttl);
+    }
+
+    /**
+     * Create a cache sized by the hibp.cache.maxBytes and hibp.cache.ttlSeconds
+     * system properties, with defaults of 64 MB and one hour
+     * @return Configured cache
+     */
+    public static RangeCache fromConfiguration() {
+        long maxBytes = Long.getLong("hibp.cache.maxBytes", DEFAULT_MAX_BYTES);
+        long ttlSeconds = Long.getLong("hibp.cache.ttlSeconds", DEFAULT_TTL_SECONDS);
+        return new RangeCache(maxBytes, ttlSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Convert a 5-digit hex prefix into the cache key
+     * @param prefix Hash prefix, either case
+     * @return Prefix value between 0 and 0xFFFFF
+     */
+    public static int prefixKey(CharSequence prefix) {
+        int key = 0;
+        for (int i = 0; i < prefix.length(); i++) {
+            int nibble = RangeData.hexValue(prefix.charAt(i));
+            if (nibble < 0) {
+                throw new IllegalArgumentException("Invalid hash prefix: " + prefix);
+            }
+            key = (key << 4) | nibble;
+        }
+        return key;
+    }
+
+    /**
+     * Look up a cached range
+     * @param prefix 5-digit hash prefix
+     * @return The cached range, or null on a miss or expired entry
+     */
+    public RangeData get(CharSequence prefix) {
+        return get(prefixKey(prefix));
+    }
+
+    /**
+     * Look up a cached range
+     * @param prefix Prefix value, as returned by {@link #prefixKey}
+     * @return The cached range, or null on a miss or expired entry
+     */
+    public RangeData get(int prefix) {
+        if (maxBytes <= 0) {
+            misses.incrementAndGet();
+            return null;
+        }
+        Integer key = prefix;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAt - System.nanoTime() > 0) {
+                hits.incrementAndGet();
+                return entry.range;
+            }
+            if (entry != null) {
+                entries.remove(key);
+                currentBytes -= entry.range.getSizeBytes();
+                expirations.incrementAndGet();
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Look up a cached range without counting a hit or miss
+     * @param prefix 5-digit hash prefix
+     * @return The cached range, or null if absent or expired
+     */
+    public RangeData peek(CharSequence prefix) {
+        return peek(prefixKey(prefix));
+    }
+
+    /**
+     * Look up a cached range without counting a hit or miss
+     * @param prefix Prefix value, as returned by {@link #prefixKey}
+     * @return The cached range, or null if absent or expired
+     */
+    public RangeData peek(int prefix) {
+        if (maxBytes <= 0) {
+            return null;
+        }
+        synchronized (this) {
+            Entry entry = entries.get(prefix);
+            return entry != null && entry.expiresAt - System.nanoTime() > 0 ? entry.range : null;
+        }
+    }
+
+    /**
+     * Store a freshly fetched range, evicting least recently used ranges if over budget
+     * @param prefix 5-digit hash prefix
+     * @param range Parsed range response
+     */
+    public void put(CharSequence prefix, RangeData range) {
+        put(prefixKey(prefix), range);
+    }
+
+    /**
+     * Store a freshly fetched range, evicting least recently used ranges if over budget
+     * @param prefix Prefix value, as returned by {@link #prefixKey}
+     * @param range Parsed range response
+     */
+    public void put(int prefix, RangeData range) {
+        long size = range.getSizeBytes();
+        if (maxBytes <= 0 || size > maxBytes) {
+            return;
+        }
+        Integer key = prefix;
+        synchronized (this) {
+            Entry previous = entries.put(key, new Entry(range, System.nanoTime() + ttlNanos));
+            if (previous != null) {
+                currentBytes -= previous.range.getSizeBytes();
+            }
+            currentBytes += size;
+            Iterator<Map.Entry<Integer, Entry>> eldest = entries.entrySet().iterator();
+            while (currentBytes > maxBytes && eldest.hasNext()) {
+                Map.Entry<Integer, Entry> victim = eldest.next();
+                currentBytes -= victim.getValue().range.getSizeBytes();
+                eldest.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Drop every cached range
+     */
+    public synchronized void clear() {
+        entries.clear();
+        currentBytes = 0;
+    }
+
+    public long getHits() { return hits.get(); }
+    public long getMisses() { return misses.get(); }
+    public long getEvictions() { return evictions.get(); }
+    public long getExpirations() { return expirations.get(); }
+    public synchronized int getEntryCount() { return entries.size(); }
+    public synchronized long getCurrentBytes() { return currentBytes; }
+    public long getMaxBytes() { return maxBytes; }
+    public boolean isEnabled() { return maxBytes > 0; }
+
+    /**
+     * @return Fraction of lookups served from the cache
+     */
+    public double getHitRatio() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0 : (double) h / total;
+    }
+}
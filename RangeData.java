@@ -0,0 +1,438 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Parsed body of one HIBP {@code /range/{prefix}} response in compact form.
+ *
+ * Each 35-digit hex suffix is packed two nibbles per byte (18 bytes) into
+ * one sorted array, with the counts in a parallel int array. Roughly 22
+ * bytes per entry instead of the ~80 a line String costs, and a lookup is a
+ * binary search with no allocation. Immutable and safe to share.
+ *
+ * Responses are parsed as bytes while they arrive (see {@link LineParser}),
+ * so no String is created per line.
+ */
+public class RangeData {
+    public static final int SUFFIX_LENGTH = 35;
+    static final int SUFFIX_BYTES = (SUFFIX_LENGTH + 1) / 2;
+    // SUFFIX:COUNT with a 10-digit count and a CR, rounded up
+    private static final int MAX_LINE_LENGTH = 64;
+
+    // Nibble value of every byte, -1 for non-hex bytes
+    private static final byte[] HEX_VALUES = new byte[256];
+    static {
+        for (int b = 0; b < 256; b++) {
+            HEX_VALUES[b] = (byte) hexValue(b);
+        }
+    }
+
+    private final byte[] suffixes;
+    private final int[] counts;
+    private final int size;
+
+    RangeData(byte[] suffixes, int[] counts, int size) {
+        this.suffixes = suffixes;
+        this.counts = counts;
+        this.size = size;
+    }
+
+    /**
+     * Parse a range response body (SUFFIX:COUNT lines)
+     * @param body The response text
+     * @return Compact, sorted range data
+     */
+    public static RangeData parse(CharSequence body) {
+        Builder builder = new Builder();
+        byte[] chunk = new byte[Math.min(body.length(), 8192)];
+        int i = 0;
+        while (i < body.length()) {
+            int n = Math.min(chunk.length, body.length() - i);
+            for (int j = 0; j < n; j++) {
+                char c = body.charAt(i + j);
+                // Non-ASCII characters can never be valid hex; map them to an invalid byte
+                chunk[j] = c < 0x80 ? (byte) c : (byte) 0xFF;
+            }
+            builder.accept(chunk, 0, n);
+            i += n;
+        }
+        return builder.build();
+    }
+
+    /**
+     * Find the breach count for a suffix
+     * @param suffixHex The 35 hex digits after the 5-digit prefix, either case
+     * @return Occurrence count, or 0 if the suffix is not in this range
+     */
+    public int find(CharSequence suffixHex) {
+        if (suffixHex.length() != SUFFIX_LENGTH) {
+            return 0;
+        }
+        int lo = 0;
+        int hi = size - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = compare(mid, suffixHex);
+            if (cmp < 0) lo = mid + 1;
+            else if (cmp > 0) hi = mid - 1;
+            else return counts[mid];
+        }
+        return 0;
+    }
+
+    /**
+     * Find the breach count for a full hash that falls in this range
+     * @param hash SHA-1 hash bytes; the first 5 hex digits are the range prefix
+     * @param offset Position of the hash in the array
+     * @return Occurrence count, or 0 if the suffix is not in this range
+     */
+    public int find(byte[] hash, int offset) {
+        int lo = 0;
+        int hi = size - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = compare(mid, hash, offset);
+            if (cmp < 0) lo = mid + 1;
+            else if (cmp > 0) hi = mid - 1;
+            else return counts[mid];
+        }
+        return 0;
+    }
+
+    /**
+     * Find a suffix and wrap the result as BreachInfo
+     * @param suffixHex The 35 hex digits after the 5-digit prefix
+     * @return BreachInfo with the occurrence count
+     */
+    public BreachInfo getBreachInfo(CharSequence suffixHex) {
+        int count = find(suffixHex);
+        return new BreachInfo(count > 0, count);
+    }
+
+    /**
+     * Find a full hash and wrap the result as BreachInfo
+     * @param hash SHA-1 hash bytes
+     * @param offset Position of the hash in the array
+     * @return BreachInfo with the occurrence count
+     */
+    public BreachInfo getBreachInfo(byte[] hash, int offset) {
+        int count = find(hash, offset);
+        return new BreachInfo(count > 0, count);
+    }
+
+    private int compare(int entry, CharSequence suffixHex) {
+        int base = entry * SUFFIX_BYTES;
+        for (int i = 0; i < SUFFIX_LENGTH; i++) {
+            int packed = suffixes[base + (i >> 1)];
+            int nibble = (i & 1) == 0 ? (packed >>> 4) & 0xF : packed & 0xF;
+            int target = hexValue(suffixHex.charAt(i));
+            if (nibble != target) {
+                return nibble < target ? -1 : 1;
+            }
+        }
+        return 0;
+    }
+
+    private int compare(int entry, byte[] hash, int offset) {
+        int base = entry * SUFFIX_BYTES;
+        for (int i = 0; i < SUFFIX_LENGTH; i++) {
+            int packed = suffixes[base + (i >> 1)];
+            int nibble = (i & 1) == 0 ? (packed >>> 4) & 0xF : packed & 0xF;
+            int target = Sha1Hasher.nibble(hash, offset, Sha1Hasher.PREFIX_LENGTH + i);
+            if (nibble != target) {
+                return nibble < target ? -1 : 1;
+            }
+        }
+        return 0;
+    }
+
+    static int hexValue(int c) {
+        if (c >= '0' && c <= '9') return c - '0';
+        if (c >= 'A' && c <= 'F') return c - 'A' + 10;
+        if (c >= 'a' && c <= 'f') return c - 'a' + 10;
+        return -1;
+    }
+
+    public int size() { return size; }
+
+    /**
+     * @return Approximate heap footprint of this range in bytes
+     */
+    public long getSizeBytes() {
+        return 32L + suffixes.length + 4L * counts.length;
+    }
+
+    /**
+     * Parse the decimal count after the colon
+     * @return The count (capped at Integer.MAX_VALUE), or -1 if a character is not a digit
+     */
+    private static int parseCount(byte[] data, int start, int end) {
+        long count = 0;
+        for (int i = start; i < end; i++) {
+            int digit = data[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            count = Math.min(Integer.MAX_VALUE, count * 10 + digit);
+        }
+        return (int) count;
+    }
+
+    private static boolean isEntry(byte[] data, int start, int end) {
+        return end - start >= SUFFIX_LENGTH + 2 && data[start + SUFFIX_LENGTH] == ':';
+    }
+
+    /**
+     * Splits pushed bytes into lines without allocating. Complete lines are
+     * handed over in place from the caller's array; only a line split across
+     * two buffers is copied into a small fixed buffer. Lines too long to be
+     * an entry are skipped.
+     */
+    abstract static class LineParser {
+        private final byte[] line = new byte[MAX_LINE_LENGTH];
+        private int length;
+        private boolean overflow;
+        private boolean done;
+        private byte[] scratch;
+
+        /**
+         * Feed the remaining bytes of a buffer
+         * @return false once the parser has its answer and needs no more input
+         */
+        final boolean accept(ByteBuffer buffer) {
+            if (buffer.hasArray()) {
+                int offset = buffer.arrayOffset();
+                accept(buffer.array(), offset + buffer.position(), offset + buffer.limit());
+                buffer.position(buffer.limit());
+            } else {
+                if (scratch == null) {
+                    scratch = new byte[4096];
+                }
+                while (!done && buffer.hasRemaining()) {
+                    int n = Math.min(scratch.length, buffer.remaining());
+                    buffer.get(scratch, 0, n);
+                    accept(scratch, 0, n);
+                }
+            }
+            return !done;
+        }
+
+        /**
+         * Feed a chunk of bytes
+         * @param data Source array
+         * @param from First byte to read
+         * @param to End of the chunk (exclusive)
+         */
+        final void accept(byte[] data, int from, int to) {
+            int p = from;
+            while (p < to && !done) {
+                int newline = p;
+                while (newline < to && data[newline] != '\n') {
+                    newline++;
+                }
+                if (newline == to) {
+                    // Partial line; keep it until the rest arrives
+                    append(data, p, to);
+                    return;
+                }
+                if (length == 0 && !overflow) {
+                    endLine(data, p, newline);
+                } else {
+                    append(data, p, newline);
+                    endLine(line, 0, length);
+                }
+                p = newline + 1;
+            }
+        }
+
+        /**
+         * Feed a single byte
+         */
+        final void accept(byte b) {
+            if (b == '\n') {
+                endLine(line, 0, length);
+            } else {
+                append(b);
+            }
+        }
+
+        private void append(byte[] data, int from, int to) {
+            int n = to - from;
+            if (overflow || length + n > line.length) {
+                overflow = true;
+                return;
+            }
+            System.arraycopy(data, from, line, length, n);
+            length += n;
+        }
+
+        private void append(byte b) {
+            if (length < line.length) {
+                line[length++] = b;
+            } else {
+                overflow = true;
+            }
+        }
+
+        /**
+         * Flush a final line that has no trailing newline
+         */
+        final void finish() {
+            if (length > 0 || overflow) {
+                endLine(line, 0, length);
+            }
+        }
+
+        private void endLine(byte[] data, int start, int end) {
+            if (done) {
+                return;
+            }
+            // Trim a trailing carriage return
+            if (end > start && data[end - 1] == '\r') {
+                end--;
+            }
+            if (!overflow && !line(data, start, end)) {
+                done = true;
+            }
+            length = 0;
+            overflow = false;
+        }
+
+        /**
+         * Handle one line without its line terminator. The bytes are only
+         * valid for the duration of the call.
+         * @return false to stop parsing
+         */
+        abstract boolean line(byte[] data, int start, int end);
+    }
+
+    /**
+     * Looks for a single suffix in a streamed range and stops at the match,
+     * or as soon as the sorted lines pass the target
+     */
+    static class Search extends LineParser {
+        private final byte[] target = new byte[SUFFIX_LENGTH];
+        private int count;
+
+        /**
+         * @param suffixHex The 35 hex digits after the 5-digit prefix, either case
+         */
+        Search(CharSequence suffixHex) {
+            if (suffixHex.length() != SUFFIX_LENGTH) {
+                throw new IllegalArgumentException("Expected a 35 digit hash suffix");
+            }
+            for (int i = 0; i < SUFFIX_LENGTH; i++) {
+                int nibble = hexValue(suffixHex.charAt(i));
+                if (nibble < 0) {
+                    throw new IllegalArgumentException("Invalid hash suffix: " + suffixHex);
+                }
+                target[i] = (byte) nibble;
+            }
+        }
+
+        /**
+         * @param hash SHA-1 hash bytes; the digits after the 5-digit prefix are searched for
+         * @param offset Position of the hash in the array
+         */
+        Search(byte[] hash, int offset) {
+            for (int i = 0; i < SUFFIX_LENGTH; i++) {
+                target[i] = (byte) Sha1Hasher.nibble(hash, offset, Sha1Hasher.PREFIX_LENGTH + i);
+            }
+        }
+
+        @Override
+        boolean line(byte[] data, int start, int end) {
+            if (!isEntry(data, start, end)) {
+                return true;
+            }
+            for (int i = 0; i < SUFFIX_LENGTH; i++) {
+                int nibble = HEX_VALUES[data[start + i] & 0xFF];
+                if (nibble != target[i]) {
+                    // Keep going while the line sorts before the target
+                    return nibble < target[i];
+                }
+            }
+            count = Math.max(0, parseCount(data, start + SUFFIX_LENGTH + 1, end));
+            return false;
+        }
+
+        /**
+         * @return Occurrence count of the suffix, or 0 if it was not in the range
+         */
+        int getCount() {
+            finish();
+            return count;
+        }
+    }
+
+    /**
+     * Accumulates parsed entries; sorts them if the input was out of order
+     */
+    static class Builder extends LineParser {
+        private byte[] suffixes = new byte[SUFFIX_BYTES * 1024];
+        private int[] counts = new int[1024];
+        private int size;
+        private boolean sorted = true;
+
+        /**
+         * Add one SUFFIX:COUNT line; malformed lines are ignored
+         */
+        @Override
+        boolean line(byte[] data, int start, int end) {
+            if (!isEntry(data, start, end)) {
+                return true;
+            }
+            int count = parseCount(data, start + SUFFIX_LENGTH + 1, end);
+            if (count < 0) {
+                return true;
+            }
+            ensureCapacity();
+            int base = size * SUFFIX_BYTES;
+            for (int i = 0; i < SUFFIX_LENGTH; i++) {
+                int nibble = HEX_VALUES[data[start + i] & 0xFF];
+                if (nibble < 0) {
+                    Arrays.fill(suffixes, base, base + SUFFIX_BYTES, (byte) 0);
+                    return true;
+                }
+                suffixes[base + (i >> 1)] |= (i & 1) == 0 ? nibble << 4 : nibble;
+            }
+            counts[size] = count;
+            if (size > 0 && compareEntries(size - 1, size) > 0) {
+                sorted = false;
+            }
+            size++;
+            return true;
+        }
+
+        private void ensureCapacity() {
+            if (size == counts.length) {
+                counts = Arrays.copyOf(counts, size * 2);
+                suffixes = Arrays.copyOf(suffixes, size * 2 * SUFFIX_BYTES);
+            }
+        }
+
+        private int compareEntries(int a, int b) {
+            return Arrays.compareUnsigned(suffixes, a * SUFFIX_BYTES, (a + 1) * SUFFIX_BYTES,
+                                          suffixes, b * SUFFIX_BYTES, (b + 1) * SUFFIX_BYTES);
+        }
+
+        RangeData build() {
+            finish();
+            if (sorted) {
+                return new RangeData(Arrays.copyOf(suffixes, size * SUFFIX_BYTES), Arrays.copyOf(counts, size), size);
+            }
+            // HIBP returns sorted ranges; handle anything else by sorting an index
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, this::compareEntries);
+            byte[] sortedSuffixes = new byte[size * SUFFIX_BYTES];
+            int[] sortedCounts = new int[size];
+            for (int i = 0; i < size; i++) {
+                System.arraycopy(suffixes, order[i] * SUFFIX_BYTES, sortedSuffixes, i * SUFFIX_BYTES, SUFFIX_BYTES);
+                sortedCounts[i] = counts[order[i]];
+            }
+            return new RangeData(sortedSuffixes, sortedCounts, size);
+        }
+    }
+}
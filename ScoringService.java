@@ -0,0 +1,414 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Headless HTTP scoring service, so signup and password-change flows can
+ * call the checker without the GUI. Built on the JDK's own HTTP server and
+ * needs no JavaFX.
+ *
+ * Usage: java ScoringService   (port from scoring.port / SCORING_PORT, default 8080)
+ *
+ *   POST /analyze               strength analysis
+ *   POST /analyze?breach=true   strength analysis plus breach check
+ *   POST /breach                breach check only
+ *   GET  /health                liveness and breach circuit breaker state
+ *   GET  /metrics               the Prometheus scrape from {@link Metrics}
+ *
+ * The password is the request body, either as JSON ({"password": "..."})
+ * or as plain UTF-8 text. It is never put in the URL, so it cannot end up
+ * in access logs. Responses are JSON.
+ *
+ * Each request runs on its own virtual thread when the runtime has them
+ * (Java 21+), so breach lookups that block on the network park cheaply
+ * instead of holding a platform thread. Older runtimes fall back to a
+ * fixed pool of scoring.threads platform threads (default 256).
+ */
+public class ScoringService implements AutoCloseable {
+    public static final int DEFAULT_PORT = 8080;
+    public static final int DEFAULT_PLATFORM_THREADS = 256;
+    // Analysis cost grows with length; nothing legitimate is this long
+    public static final int MAX_BODY_BYTES = 4096;
+
+    private static final LatencyHistogram REQUEST_LATENCY = Metrics.global().histogram("request");
+    private static final LongAdder REQUESTS = Metrics.global().counter(
+            "scoring_requests", "Requests to the scoring service");
+    private static final LongAdder ERRORS = Metrics.global().counter(
+            "scoring_errors", "Scoring requests answered with an error status");
+
+    static {
+        // The JDK server writes headers and body separately. Without TCP_NODELAY,
+        // Nagle's algorithm and delayed ACKs add ~40 ms to every keep-alive
+        // response. The setting is read when the first server is created.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final PasswordStrengthAnalyzer analyzer;
+    private final HIBPClient client;
+    private final ExecutorService executor;
+    private HttpServer server;
+
+    /**
+     * @param analyzer Analyzer for /analyze; it is shared by all request threads
+     * @param client Client for breach checks
+     * @param executor Runs one task per request, see {@link #requestExecutor}
+     */
+    public ScoringService(PasswordStrengthAnalyzer analyzer, HIBPClient client, ExecutorService executor) {
+        this.analyzer = analyzer;
+        this.client = client;
+        this.executor = executor;
+    }
+
+    /**
+     * Create a service from system properties / environment: the breach
+     * client from {@link HIBPClient#fromConfiguration()} and the platform
+     * thread fallback from scoring.threads
+     * @return Configured service, not yet started
+     */
+    public static ScoringService fromConfiguration() {
+        return new ScoringService(new PasswordStrengthAnalyzer(), HIBPClient.fromConfiguration(),
+                                  requestExecutor(Integer.getInteger("scoring.threads", DEFAULT_PLATFORM_THREADS)));
+    }
+
+    public static void main(String[] args) throws IOException {
+        String port = System.getProperty("scoring.port", System.getenv("SCORING_PORT"));
+        Metrics.exposeFromConfiguration();
+        ScoringService service = fromConfiguration();
+        service.start(port == null || port.isEmpty() ? DEFAULT_PORT : Integer.parseInt(port.trim()));
+        System.err.println("Scoring service listening on http://localhost:" + service.getPort()
+                           + (isVirtual(service.executor) ? " (virtual threads)" : " (platform threads)"));
+        Runtime.getRuntime().addShutdownHook(new Thread(service::close));
+    }
+
+    /**
+     * An executor that starts a virtual thread per task where the runtime
+     * supports it, otherwise a fixed pool of platform threads
+     * @param platformThreads Pool size for the fallback
+     * @return Executor for request handling
+     */
+    public static ExecutorService requestExecutor(int platformThreads) {
+        return BreachLookupExecutor.virtualThreadsOr(platformThreads, "scoring");
+    }
+
+    private static boolean isVirtual(ExecutorService executor) {
+        return !(executor instanceof ThreadPoolExecutor);
+    }
+
+    /**
+     * Bind the port and start serving
+     * @param port TCP port to listen on (0 for any free port)
+     * @throws IOException if the port cannot be bound
+     */
+    public void start(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(port), 1024);
+        server.createContext("/analyze", exchange -> handle(exchange, true));
+        server.createContext("/breach", exchange -> handle(exchange, false));
+        server.createContext("/health", exchange -> respond(exchange, 200, "{\"status\":\"ok\",\"breachCircuit\":\""
+                + client.getCircuitBreaker().getState().name().toLowerCase() + "\"}"));
+        Metrics.global().mount(server);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * @return The bound port, useful after starting on port 0
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+        }
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void handle(HttpExchange exchange, boolean analyze) throws IOException {
+        long start = System.nanoTime();
+        REQUESTS.increment();
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                respond(exchange, 405, error("Use POST with the password in the body"));
+                return;
+            }
+            String password;
+            try {
+                password = readPassword(exchange);
+            } catch (IllegalArgumentException e) {
+                respond(exchange, 400, error(e.getMessage()));
+                return;
+            }
+            if (password == null) {
+                respond(exchange, 413, error("Password too long"));
+                return;
+            }
+
+            StringBuilder json = new StringBuilder(512).append('{');
+            if (analyze) {
+                appendAnalysis(json, analyzer.analyzePassword(password));
+            }
+            if (!analyze || hasFlag(exchange.getRequestURI().getRawQuery(), "breach")) {
+                BreachInfo info;
+                try {
+                    info = client.getPasswordBreachInfo(password);
+                } catch (HttpTimeoutException e) {
+                    respond(exchange, 504, error("Breach check timed out"));
+                    return;
+                } catch (CircuitBreaker.OpenException e) {
+                    // Tell clients when the next trial request is due rather than letting them hammer us
+                    long retrySeconds = Math.max(1, (e.getRetryInMillis() + 999) / 1000);
+                    exchange.getResponseHeaders().set("Retry-After", Long.toString(retrySeconds));
+                    respond(exchange, 503, error("Breach check unavailable"));
+                    return;
+                } catch (Exception e) {
+                    respond(exchange, 502, error("Breach check failed"));
+                    return;
+                }
+                if (analyze) {
+                    json.append(',');
+                }
+                json.append("\"breach\":{\"pwned\":").append(info.isPwned())
+                    .append(",\"count\":").append(info.getOccurrenceCount()).append('}');
+            }
+            respond(exchange, 200, json.append('}').toString());
+        } finally {
+            REQUEST_LATENCY.recordSince(start);
+        }
+    }
+
+    /**
+     * @return The password from the body, or null if the body is over {@link #MAX_BODY_BYTES}
+     * @throws IllegalArgumentException if there is no password
+     */
+    private static String readPassword(HttpExchange exchange) throws IOException {
+        byte[] body;
+        try (InputStream in = exchange.getRequestBody()) {
+            body = in.readNBytes(MAX_BODY_BYTES + 1);
+        }
+        if (body.length > MAX_BODY_BYTES) {
+            return null;
+        }
+        String text = new String(body, StandardCharsets.UTF_8);
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        String password = contentType != null && contentType.startsWith("application/json")
+                ? JsonField.read(text, "password") : text;
+        if (password == null || password.isEmpty()) {
+            throw new IllegalArgumentException("No password in the request body");
+        }
+        return password;
+    }
+
+    private static void appendAnalysis(StringBuilder json, PasswordAnalysisResult result) {
+        json.append("\"score\":").append(result.getScore())
+            .append(",\"strength\":");
+        appendString(json, result.getStrengthCategory());
+        json.append(",\"length\":").append(result.getLength())
+            .append(",\"characterTypes\":").append(result.getCharacterTypes())
+            .append(",\"entropy\":").append(Math.round(result.getEntropy() * 10) / 10.0)
+            .append(",\"commonPatterns\":").append(result.hasCommonPatterns())
+            .append(",\"weakDictionary\":").append(result.isInWeakDictionary())
+            .append(",\"detectedPatterns\":");
+        appendString(json, result.getDetectedPatterns());
+        json.append(",\"recommendations\":[");
+        List<String> recommendations = result.getRecommendations();
+        for (int i = 0; i < recommendations.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            appendString(json, recommendations.get(i));
+        }
+        json.append(']');
+    }
+
+    // True for "name=true" among the query parameters
+    private static boolean hasFlag(String query, String name) {
+        if (query == null) {
+            return false;
+        }
+        for (String parameter : query.split("&")) {
+            if (parameter.equals(name + "=true")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String error(String message) {
+        StringBuilder json = new StringBuilder(64).append("{\"error\":");
+        appendString(json, message);
+        return json.append('}').toString();
+    }
+
+    static void appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': json.append("\\\""); break;
+                case '\\': json.append("\\\\"); break;
+                case '\n': json.append("\\n"); break;
+                case '\r': json.append("\\r"); break;
+                case '\t': json.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        json.append('"');
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        if (status >= 400) {
+            ERRORS.increment();
+        }
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Reads one top-level string field from a flat JSON object, which is all
+     * the request bodies need; nested objects and arrays are rejected
+     */
+    static final class JsonField {
+        private final String text;
+        private int pos;
+
+        private JsonField(String text) {
+            this.text = text;
+        }
+
+        /**
+         * @return The field's string value, or null if the object has no such field
+         * @throws IllegalArgumentException if the text is not a flat JSON object
+         */
+        static String read(String text, String name) {
+            JsonField parser = new JsonField(text);
+            String found = null;
+            parser.expect('{');
+            if (parser.peek() == '}') {
+                parser.pos++;
+            } else {
+                do {
+                    String key = parser.string();
+                    parser.expect(':');
+                    if (parser.peek() == '"') {
+                        String value = parser.string();
+                        if (key.equals(name)) {
+                            found = value;
+                        }
+                    } else {
+                        parser.literal();
+                    }
+                } while (parser.next() == ',');
+                parser.pos--;
+                parser.expect('}');
+            }
+            if (parser.peek() != -1) {
+                throw new IllegalArgumentException("Unexpected content after the JSON object");
+            }
+            return found;
+        }
+
+        private int peek() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+            return pos < text.length() ? text.charAt(pos) : -1;
+        }
+
+        private int next() {
+            int c = peek();
+            pos++;
+            return c;
+        }
+
+        private void expect(char c) {
+            if (next() != c) {
+                throw new IllegalArgumentException("Malformed JSON: expected '" + c + "'");
+            }
+        }
+
+        private String string() {
+            expect('"');
+            StringBuilder out = new StringBuilder();
+            while (pos < text.length()) {
+                char c = text.charAt(pos++);
+                if (c == '"') {
+                    return out.toString();
+                }
+                if (c != '\\') {
+                    out.append(c);
+                    continue;
+                }
+                if (pos >= text.length()) {
+                    break;
+                }
+                char escape = text.charAt(pos++);
+                switch (escape) {
+                    case 'b': out.append('\b'); break;
+                    case 'f': out.append('\f'); break;
+                    case 'n': out.append('\n'); break;
+                    case 'r': out.append('\r'); break;
+                    case 't': out.append('\t'); break;
+                    case 'u':
+                        if (pos + 4 > text.length()) {
+                            throw new IllegalArgumentException("Malformed JSON: truncated \\u escape");
+                        }
+                        try {
+                            out.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw new IllegalArgumentException("Malformed JSON: bad \\u escape");
+                        }
+                        pos += 4;
+                        break;
+                    default: out.append(escape); break;
+                }
+            }
+            throw new IllegalArgumentException("Malformed JSON: unterminated string");
+        }
+
+        // Numbers, true, false and null; their values are never needed
+        private void literal() {
+            int c = peek();
+            if (c == '{' || c == '[') {
+                throw new IllegalArgumentException("Nested JSON values are not supported");
+            }
+            int begin = pos;
+            while (pos < text.length() && ",}".indexOf(text.charAt(pos)) < 0
+                    && !Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+            if (pos == begin) {
+                throw new IllegalArgumentException("Malformed JSON: missing value");
+            }
+        }
+    }
+}
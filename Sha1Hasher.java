@@ -0,0 +1,193 @@
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+/**
+ * SHA-1 hashing of passwords for breach lookups, without per-call setup.
+ *
+ * Each thread keeps its own {@link MessageDigest} and UTF-8 buffer, so a
+ * hash costs one digest computation and nothing else: no provider lookup,
+ * no charset encoder, and no String formatting. Hashes are plain 20-byte
+ * arrays (or 20-byte slots in a larger array for batches). The helpers
+ * below take the range prefix, the filter words and the hex form straight
+ * from those bytes.
+ *
+ * Passwords are always encoded as UTF-8, the encoding Pwned Passwords uses,
+ * whatever the platform default charset is.
+ */
+public final class Sha1Hasher {
+    public static final int HASH_BYTES = 20;
+    public static final int PREFIX_LENGTH = 5;
+
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    private static final ThreadLocal<Sha1Hasher> LOCAL = ThreadLocal.withInitial(Sha1Hasher::new);
+
+    private final MessageDigest digest;
+    private byte[] utf8 = new byte[64];
+
+    private Sha1Hasher() {
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-1
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Hash a password
+     * @param password The password to hash
+     * @return 20-byte SHA-1 hash of the UTF-8 encoded password
+     */
+    public static byte[] sha1(CharSequence password) {
+        byte[] hash = new byte[HASH_BYTES];
+        sha1(password, hash, 0);
+        return hash;
+    }
+
+    /**
+     * Hash a password into an existing array
+     * @param password The password to hash
+     * @param out Destination array
+     * @param offset Position of the 20-byte hash in the destination
+     */
+    public static void sha1(CharSequence password, byte[] out, int offset) {
+        LOCAL.get().digest(password, out, offset);
+    }
+
+    /**
+     * Hash many passwords at once on the calling thread
+     * @param passwords The passwords to hash
+     * @return Hashes back to back, password i at offset {@code i * HASH_BYTES}
+     */
+    public static byte[] sha1All(List<? extends CharSequence> passwords) {
+        Sha1Hasher hasher = LOCAL.get();
+        byte[] hashes = new byte[passwords.size() * HASH_BYTES];
+        for (int i = 0; i < passwords.size(); i++) {
+            hasher.digest(passwords.get(i), hashes, i * HASH_BYTES);
+        }
+        return hashes;
+    }
+
+    private void digest(CharSequence password, byte[] out, int offset) {
+        TraceEvents.Hash event = new TraceEvents.Hash();
+        event.begin();
+        int length = encodeUtf8(password);
+        digest.update(utf8, 0, length);
+        try {
+            digest.digest(out, offset, HASH_BYTES);
+        } catch (DigestException e) {
+            // Only thrown for a too-small output slot
+            throw new IllegalArgumentException("No room for a 20-byte hash at offset " + offset, e);
+        }
+        if (event.shouldCommit()) {
+            event.prefix = prefixHex(prefix(out, offset));
+            event.commit();
+        }
+    }
+
+    // Encode into the reusable buffer; unpaired surrogates become '?', as String.getBytes does
+    private int encodeUtf8(CharSequence text) {
+        int chars = text.length();
+        if (utf8.length < chars * 3) {
+            utf8 = new byte[chars * 3];
+        }
+        byte[] buffer = utf8;
+        int n = 0;
+        for (int i = 0; i < chars; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                buffer[n++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[n++] = (byte) (0xC0 | (c >> 6));
+                buffer[n++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                char low = i + 1 < chars ? text.charAt(i + 1) : 0;
+                if (Character.isHighSurrogate(c) && Character.isLowSurrogate(low)) {
+                    int cp = Character.toCodePoint(c, low);
+                    buffer[n++] = (byte) (0xF0 | (cp >> 18));
+                    buffer[n++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                    buffer[n++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                    buffer[n++] = (byte) (0x80 | (cp & 0x3F));
+                    i++;
+                } else {
+                    buffer[n++] = '?';
+                }
+            } else {
+                buffer[n++] = (byte) (0xE0 | (c >> 12));
+                buffer[n++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[n++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Get one hex digit of a hash as a number
+     * @param hash Hash bytes
+     * @param offset Position of the hash
+     * @param index Nibble index, 0 to 39
+     * @return Value between 0 and 15
+     */
+    public static int nibble(byte[] hash, int offset, int index) {
+        int b = hash[offset + (index >> 1)];
+        return (index & 1) == 0 ? (b >>> 4) & 0xF : b & 0xF;
+    }
+
+    /**
+     * @return The 5-digit range prefix as a number between 0 and 0xFFFFF
+     */
+    public static int prefix(byte[] hash, int offset) {
+        return ((hash[offset] & 0xFF) << 12) | ((hash[offset + 1] & 0xFF) << 4) | ((hash[offset + 2] & 0xFF) >>> 4);
+    }
+
+    /**
+     * @param prefix Range prefix between 0 and 0xFFFFF
+     * @return The 5 uppercase hex digits used in the range URL
+     */
+    public static String prefixHex(int prefix) {
+        char[] digits = new char[PREFIX_LENGTH];
+        for (int i = PREFIX_LENGTH - 1; i >= 0; i--) {
+            digits[i] = HEX_DIGITS[prefix & 0xF];
+            prefix >>>= 4;
+        }
+        return new String(digits);
+    }
+
+    /**
+     * @return First 8 bytes of the hash as a big-endian long
+     */
+    public static long high(byte[] hash, int offset) {
+        return readLong(hash, offset);
+    }
+
+    /**
+     * @return Bytes 8 to 15 of the hash as a big-endian long
+     */
+    public static long low(byte[] hash, int offset) {
+        return readLong(hash, offset + 8);
+    }
+
+    private static long readLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (bytes[offset + i] & 0xFF);
+        }
+        return value;
+    }
+
+    /**
+     * @return The full hash as 40 uppercase hex digits
+     */
+    public static String toHex(byte[] hash, int offset) {
+        char[] digits = new char[HASH_BYTES * 2];
+        for (int i = 0; i < HASH_BYTES; i++) {
+            int b = hash[offset + i];
+            digits[2 * i] = HEX_DIGITS[(b >>> 4) & 0xF];
+            digits[2 * i + 1] = HEX_DIGITS[b & 0xF];
+        }
+        return new String(digits);
+    }
+}
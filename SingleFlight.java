@@ -0,0 +1,102 @@
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collapses concurrent calls for the same key into one execution.
+ *
+ * The first caller for a key runs the loader. Callers that arrive while it
+ * is still running wait for that result (or failure) instead of starting
+ * their own. Once the call completes, the key is free again; caching the
+ * result is up to the caller.
+ *
+ * A caller that is interrupted or cancelled while running the loader does
+ * not pass that on to the others: the key is freed and one of the waiting
+ * callers runs the loader in its place.
+ *
+ * @param <K> Key type
+ * @param <V> Result type
+ */
+public class SingleFlight<K, V> {
+    private final ConcurrentHashMap<K, CompletableFuture<V>> calls = new ConcurrentHashMap<>();
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * Run the loader for a key, or join a call for the same key already in progress
+     * @param key Identifies the work
+     * @param loader Computes the result; run at most once per concurrent group
+     * @return The shared result
+     * @throws Exception whatever the loader threw, or InterruptedException while waiting
+     */
+    public V execute(K key, Callable<V> loader) throws Exception {
+        boolean joined = false;
+        while (true) {
+            CompletableFuture<V> call = new CompletableFuture<>();
+            CompletableFuture<V> existing = calls.putIfAbsent(key, call);
+            if (existing != null) {
+                if (!joined) {
+                    coalesced.incrementAndGet();
+                    joined = true;
+                }
+                try {
+                    return existing.get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof LeaderCancelled) {
+                        // Take over, or join whoever got there first
+                        continue;
+                    }
+                    if (cause instanceof Exception) {
+                        throw (Exception) cause;
+                    }
+                    throw e;
+                }
+            }
+
+            executions.incrementAndGet();
+            try {
+                V value = loader.call();
+                call.complete(value);
+                return value;
+            } catch (InterruptedException | CancellationException e) {
+                // Only this caller gave up; free the key before waking the others
+                calls.remove(key, call);
+                call.completeExceptionally(new LeaderCancelled());
+                throw e;
+            } catch (Exception | Error e) {
+                call.completeExceptionally(e);
+                throw e;
+            } finally {
+                calls.remove(key, call);
+            }
+        }
+    }
+
+    // Tells waiting callers that the caller running the loader was cancelled
+    private static final class LeaderCancelled extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        LeaderCancelled() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * @return Number of loader executions
+     */
+    public long getExecutions() { return executions.get(); }
+
+    /**
+     * @return Number of callers that joined an execution instead of starting one
+     */
+    public long getCoalesced() { return coalesced.get(); }
+
+    /**
+     * @return Number of keys with a call in progress
+     */
+    public int getInFlight() { return calls.size(); }
+}
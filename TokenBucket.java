@@ -0,0 +1,77 @@
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request-rate limiter: a bucket of up to burst tokens, refilled at a
+ * fixed rate, one token per request.
+ *
+ * The bucket can also be paused, which is how a server's Retry-After is
+ * honoured: no token is handed out until the pause ends, whatever the
+ * rate. A bucket with a rate of 0 never limits, but can still be paused.
+ */
+public class TokenBucket {
+    private final double tokensPerNano;
+    private final double burst;
+
+    // Guarded by this
+    private double tokens;
+    private long refilledAt = System.nanoTime();
+    private long pausedUntil = refilledAt;
+
+    /**
+     * @param ratePerSecond Sustained requests per second (0 or less: unlimited)
+     * @param burst Requests that may start back to back after an idle period
+     */
+    public TokenBucket(double ratePerSecond, int burst) {
+        this.tokensPerNano = ratePerSecond > 0 ? ratePerSecond / TimeUnit.SECONDS.toNanos(1) : 0;
+        this.burst = Math.max(1, burst);
+        this.tokens = this.burst;
+    }
+
+    /**
+     * Take a token if one is available
+     * @return 0 if a token was taken, otherwise nanoseconds until one can be
+     */
+    public synchronized long tryAcquire() {
+        long now = System.nanoTime();
+        if (pausedUntil - now > 0) {
+            return pausedUntil - now;
+        }
+        if (tokensPerNano == 0) {
+            return 0;
+        }
+        tokens = Math.min(burst, tokens + (now - refilledAt) * tokensPerNano);
+        refilledAt = now;
+        if (tokens >= 1) {
+            tokens--;
+            return 0;
+        }
+        return Math.max(1, (long) Math.ceil((1 - tokens) / tokensPerNano));
+    }
+
+    /**
+     * Give back a token taken for a request that was never sent
+     */
+    public synchronized void refund() {
+        if (tokensPerNano > 0) {
+            tokens = Math.min(burst, tokens + 1);
+        }
+    }
+
+    /**
+     * Hand out no tokens for a while, e.g. for a Retry-After response header
+     * @param nanos How long to pause, from now; a shorter pause than one already in force has no effect
+     */
+    public synchronized void pause(long nanos) {
+        long until = System.nanoTime() + nanos;
+        if (until - pausedUntil > 0) {
+            pausedUntil = until;
+        }
+    }
+
+    /**
+     * @return Nanoseconds until the current pause ends (0 if not paused)
+     */
+    public synchronized long getPauseRemaining() {
+        return Math.max(0, pausedUntil - System.nanoTime());
+    }
+}
@@ -0,0 +1,151 @@
+import java.net.http.HttpTimeoutException;
+import java.util.concurrent.CancellationException;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * Java Flight Recorder events for analysis and breach-check tracing.
+ *
+ * Events carry the 5-digit range prefix at most, which is sent to the API
+ * anyway, and never the password, its full hash or its breach count (a
+ * prefix plus a count can single out one hash). When JFR is not recording,
+ * or an event type is disabled, begin and commit are no-ops the JIT
+ * removes. The events therefore stay in place for continuous recordings:
+ *
+ *   java -XX:StartFlightRecording=settings=default,filename=checker.jfr ...
+ *   jfr print --categories "Password Checker" checker.jfr
+ *
+ * Events for sub-microsecond steps (analysis, hashing) have a 1 ms
+ * threshold by default, so only outliers are written. Lower it in a
+ * custom .jfc settings file to trace every call.
+ */
+final class TraceEvents {
+    static final String CATEGORY = "Password Checker";
+
+    private TraceEvents() {
+    }
+
+    /**
+     * @return Outcome name for a failed breach check or request
+     */
+    static String outcome(Throwable error) {
+        if (error instanceof CancellationException || error instanceof InterruptedException) {
+            return "cancelled";
+        }
+        if (error instanceof HttpTimeoutException) {
+            return "timeout";
+        }
+        return "error";
+    }
+
+    @Name("passwordchecker.Analysis")
+    @Label("Password Analysis")
+    @Category(CATEGORY)
+    @Description("One call to PasswordStrengthAnalyzer.analyzePassword")
+    @Threshold("1 ms")
+    @StackTrace(false)
+    static class Analysis extends Event {
+        @Label("Score")
+        int score;
+
+        @Label("Strength")
+        String strength;
+    }
+
+    @Name("passwordchecker.Hash")
+    @Label("Password Hash")
+    @Category(CATEGORY)
+    @Description("SHA-1 of a password before a breach lookup, single or in a batch")
+    @Threshold("1 ms")
+    @StackTrace(false)
+    static class Hash extends Event {
+        @Label("Prefix")
+        String prefix;
+    }
+
+    @Name("passwordchecker.BreachLookup")
+    @Label("Breach Lookup")
+    @Category(CATEGORY)
+    @Description("One HIBPClient.getPasswordBreachInfo call, from hashing to the answer")
+    @StackTrace(false)
+    static class BreachLookup extends Event {
+        @Label("Prefix")
+        String prefix;
+
+        @Label("Source")
+        @Description("filter, local, cache, network or fallback")
+        String source;
+
+        @Label("Outcome")
+        @Description("ok, error, timeout or cancelled")
+        String outcome;
+    }
+
+    @Name("passwordchecker.RangeRequest")
+    @Label("Range Request")
+    @Category(CATEGORY)
+    @Description("One range request, from queueing for a permit to the end of the body")
+    @StackTrace(false)
+    static class RangeRequest extends Event {
+        @Label("Prefix")
+        String prefix;
+
+        @Label("Queued")
+        @Description("Waiting for a concurrency permit")
+        @Timespan(Timespan.NANOSECONDS)
+        long queued;
+
+        @Label("First Byte")
+        @Description("Sending the request, including any connect and TLS handshake, until the headers arrive")
+        @Timespan(Timespan.NANOSECONDS)
+        long firstByte;
+
+        @Label("Body")
+        @Description("Receiving and parsing the body after the headers")
+        @Timespan(Timespan.NANOSECONDS)
+        long body;
+
+        @Label("Status Code")
+        int statusCode;
+
+        @Label("Response Size")
+        @Description("Body bytes received by completion; a search that stops early completes before the rest arrives")
+        @DataAmount
+        long responseBytes;
+
+        @Label("Outcome")
+        @Description("ok, http-error, error, timeout or cancelled")
+        String outcome;
+    }
+
+    @Name("passwordchecker.RangeParse")
+    @Label("Range Parse")
+    @Category(CATEGORY)
+    @Description("Parsing one streamed range body")
+    @StackTrace(false)
+    static class RangeParse extends Event {
+        @Label("Prefix")
+        String prefix;
+
+        @Label("Parse Time")
+        @Description("CPU time inside the parser, excluding the wait for network buffers")
+        @Timespan(Timespan.NANOSECONDS)
+        long parseTime;
+
+        @Label("Bytes Parsed")
+        @DataAmount
+        long bytes;
+
+        @Label("Stopped Early")
+        @Description("A single-hash search found its answer before the end of the body")
+        boolean stoppedEarly;
+    }
+}
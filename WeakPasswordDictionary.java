@@ -0,0 +1,474 @@
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Read-only weak-password dictionary for lists of tens of millions of words.
+ *
+ * Words are stored as 64-bit fingerprints in a minimal-perfect-hash style
+ * table (hash and displace). Each word hashes to a bucket of about four
+ * words, and a per-bucket "pilot" picks a slot for every word of the bucket
+ * so that no two words share a slot. A lookup is two array reads and one
+ * fingerprint compare, whatever the dictionary size. The words themselves
+ * are not kept. The cost is about 9.3 bytes per word: 8 for the
+ * fingerprint at 97% slot occupancy, plus a 4-byte pilot per bucket. A
+ * {@code HashSet<String>} needs around 100 bytes per word.
+ *
+ * Compile a word list (one password per line, UTF-8) once with:
+ *
+ *   java WeakPasswordDictionary words.txt weak.dict
+ *
+ * The compiled file is memory-mapped, so it opens instantly and lives off
+ * the Java heap. Matching ignores case, like the original inline list. A
+ * word that is not in the list matches only on a 64-bit fingerprint
+ * collision, which is negligible in practice.
+ */
+public class WeakPasswordDictionary implements Closeable {
+    private static final long MAGIC = 0x3154434944574B57L; // "WKWDICT1" little-endian
+    private static final int HEADER_SIZE = 64;
+    // Header field holding the longest word; zero in files written before it was recorded
+    private static final int MAX_LENGTH_OFFSET = 40;
+    // Average words per bucket; each bucket costs one 4-byte pilot
+    private static final int WORDS_PER_BUCKET = 4;
+    // Fraction of fingerprint slots in use
+    private static final double LOAD_FACTOR = 0.97;
+    // Give up on a seed once a bucket needs more pilot attempts than this
+    private static final int MAX_PILOT = 1 << 24;
+    private static final long KEY_SEED = 0x2545F4914F6CDD1DL;
+    private static final long FINGERPRINT_SEED = 0x9E3779B97F4A7C15L;
+
+    // Used when no dictionary file is configured
+    static final String[] BUILT_IN = {
+        "password", "123456", "123456789", "qwerty", "abc123", "password123",
+        "admin", "letmein", "welcome", "monkey", "1234567890", "password1",
+        "qwerty123", "dragon", "master", "hello", "freedom", "whatever",
+        "qazwsx", "trustno1", "654321", "jordan23", "harley", "shadow",
+        "superman", "qwertyuiop", "michael", "football", "baseball", "welcome123",
+        "1234567", "12345678", "princess", "azerty", "login", "passw0rd",
+        "hello123", "iloveyou", "sunshine", "charlie", "aa123456", "donald"
+    };
+
+    private final Table table;
+    private final MappedFile file;
+    private final long entries;
+    private final long buckets;
+    private final long slots;
+    private final long seed;
+    // Longer input cannot be a listed word, so it is rejected without hashing
+    private final int maxLength;
+    private final long loadNanos;
+
+    // Pilot and fingerprint storage: heap arrays or a mapped file
+    private interface Table {
+        int pilot(long bucket);
+        long fingerprint(long slot);
+    }
+
+    private WeakPasswordDictionary(Table table, MappedFile file, long entries, long buckets, long slots,
+                                   long seed, int maxLength, long loadNanos) {
+        this.table = table;
+        this.file = file;
+        this.entries = entries;
+        this.buckets = buckets;
+        this.slots = slots;
+        this.seed = seed;
+        this.maxLength = maxLength;
+        this.loadNanos = loadNanos;
+    }
+
+    /**
+     * @return Dictionary of the built-in list of common weak passwords
+     */
+    public static WeakPasswordDictionary builtIn() {
+        return of(Arrays.asList(BUILT_IN));
+    }
+
+    /**
+     * Build an in-memory dictionary from a collection of words
+     * @param words The weak passwords
+     * @return The dictionary
+     */
+    public static WeakPasswordDictionary of(Collection<? extends CharSequence> words) {
+        long start = System.nanoTime();
+        Builder builder = new Builder();
+        for (CharSequence word : words) {
+            builder.add(word);
+        }
+        return builder.build(start);
+    }
+
+    /**
+     * Build an in-memory dictionary from a word list file
+     * @param wordList One password per line, UTF-8; blank lines are skipped
+     * @return The dictionary
+     * @throws IOException if the file cannot be read
+     */
+    public static WeakPasswordDictionary load(Path wordList) throws IOException {
+        long start = System.nanoTime();
+        Builder builder = new Builder();
+        try (BufferedReader reader = Files.newBufferedReader(wordList, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    builder.add(line);
+                }
+            }
+        }
+        return builder.build(start);
+    }
+
+    /**
+     * Map a dictionary compiled with {@link #save}
+     * @param path Compiled dictionary file
+     * @return The mapped dictionary
+     * @throws IOException if the file cannot be mapped or is not a dictionary
+     */
+    public static WeakPasswordDictionary open(Path path) throws IOException {
+        long start = System.nanoTime();
+        MappedFile file = MappedFile.openReadOnly(path);
+        if (file.size() < HEADER_SIZE || file.getLong(0) != MAGIC) {
+            file.close();
+            throw new IOException("Not a compiled weak-password dictionary: " + path);
+        }
+        long entries = file.getLong(8);
+        long buckets = file.getLong(16);
+        long slots = file.getLong(24);
+        long seed = file.getLong(32);
+        long maxLength = file.getLong(MAX_LENGTH_OFFSET);
+        long fingerprintsAt = fingerprintOffset(buckets);
+        if (file.size() != fingerprintsAt + 8 * slots) {
+            file.close();
+            throw new IOException("Truncated weak-password dictionary: " + path);
+        }
+        Table table = new Table() {
+            @Override
+            public int pilot(long bucket) {
+                return file.getInt(HEADER_SIZE + 4 * bucket);
+            }
+
+            @Override
+            public long fingerprint(long slot) {
+                return file.getLong(fingerprintsAt + 8 * slot);
+            }
+        };
+        return new WeakPasswordDictionary(table, file, entries, buckets, slots, seed,
+                                          maxLength > 0 && maxLength < Integer.MAX_VALUE ? (int) maxLength : Integer.MAX_VALUE,
+                                          System.nanoTime() - start);
+    }
+
+    /**
+     * Open the dictionary named by the {@code weak.dictionary} system property
+     * or the {@code WEAK_DICTIONARY} environment variable: either a compiled
+     * file or a plain word list
+     * @return The configured dictionary, or the built-in list if none is set or it cannot be read
+     */
+    public static WeakPasswordDictionary fromConfiguration() {
+        String location = System.getProperty("weak.dictionary", System.getenv("WEAK_DICTIONARY"));
+        if (location == null || location.isEmpty()) {
+            return builtIn();
+        }
+        Path path = Paths.get(location);
+        try {
+            return isCompiled(path) ? open(path) : load(path);
+        } catch (IOException e) {
+            System.err.println("Unable to load weak-password dictionary, using built-in list: " + e.getMessage());
+            return builtIn();
+        }
+    }
+
+    private static boolean isCompiled(Path path) throws IOException {
+        byte[] header = new byte[8];
+        try (InputStream in = Files.newInputStream(path)) {
+            if (in.readNBytes(header, 0, 8) < 8) {
+                return false;
+            }
+        }
+        long magic = 0;
+        for (int i = 7; i >= 0; i--) {
+            magic = (magic << 8) | (header[i] & 0xFF);
+        }
+        return magic == MAGIC;
+    }
+
+    /**
+     * Check whether a password is in the dictionary, ignoring case
+     * @param password The password to check
+     * @return true if the password is a listed weak password
+     */
+    public boolean contains(CharSequence password) {
+        if (entries == 0 || password.length() > maxLength) {
+            return false;
+        }
+        long key = hash(password, KEY_SEED);
+        long slot = slotOf(key, table.pilot(bucketOf(key, buckets)), seed, slots);
+        return table.fingerprint(slot) == fingerprint(password);
+    }
+
+    /**
+     * Write the dictionary in the compiled, mappable format
+     * @param output File to write
+     * @throws IOException if writing fails
+     */
+    public void save(Path output) throws IOException {
+        long fingerprintsAt = fingerprintOffset(buckets);
+        try (MappedFile out = MappedFile.create(output, fingerprintsAt + 8 * slots)) {
+            out.putLong(0, MAGIC);
+            out.putLong(8, entries);
+            out.putLong(16, buckets);
+            out.putLong(24, slots);
+            out.putLong(32, seed);
+            out.putLong(MAX_LENGTH_OFFSET, maxLength);
+            for (long b = 0; b < buckets; b++) {
+                out.putInt(HEADER_SIZE + 4 * b, table.pilot(b));
+            }
+            for (long s = 0; s < slots; s++) {
+                out.putLong(fingerprintsAt + 8 * s, table.fingerprint(s));
+            }
+            out.force();
+        }
+    }
+
+    // Pilots are 4 bytes each; keep the fingerprint section 8-byte aligned
+    private static long fingerprintOffset(long buckets) {
+        return HEADER_SIZE + ((4 * buckets + 7) & ~7L);
+    }
+
+    private static long bucketOf(long key, long buckets) {
+        return ((key >>> 32) * buckets) >>> 32;
+    }
+
+    private static long slotOf(long key, int pilot, long seed, long slots) {
+        long mixed = mix(key ^ seed ^ mix(pilot + 1L));
+        return ((mixed & 0xFFFFFFFFL) * slots) >>> 32;
+    }
+
+    private static long fingerprint(CharSequence password) {
+        long fingerprint = hash(password, FINGERPRINT_SEED);
+        // 0 marks an empty slot
+        return fingerprint == 0 ? 1 : fingerprint;
+    }
+
+    // 64-bit hash of the lower-cased characters
+    private static long hash(CharSequence text, long seed) {
+        long h = seed ^ (text.length() * 0xC2B2AE3D27D4EB4FL);
+        for (int i = 0; i < text.length(); i++) {
+            h = (h ^ Character.toLowerCase(text.charAt(i))) * 0xFF51AFD7ED558CCDL;
+            h ^= h >>> 29;
+        }
+        return mix(h);
+    }
+
+    // MurmurHash3 finalizer
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * @return Number of distinct words
+     */
+    public long size() { return entries; }
+
+    /**
+     * @return Length of the longest word, or Integer.MAX_VALUE if the file does not record it
+     */
+    public int getMaxLength() { return maxLength; }
+
+    /**
+     * @return Bytes used by the table, on or off the heap
+     */
+    public long getSizeBytes() { return fingerprintOffset(buckets) + 8 * slots; }
+
+    /**
+     * @return Time taken to build or map the dictionary, in milliseconds
+     */
+    public double getLoadMillis() { return loadNanos / 1e6; }
+
+    /**
+     * @return true if the table is a memory-mapped file rather than heap arrays
+     */
+    public boolean isMapped() { return file != null; }
+
+    @Override
+    public void close() throws IOException {
+        if (file != null) {
+            file.close();
+        }
+    }
+
+    /**
+     * Collects word hashes and places them in the table
+     */
+    private static class Builder {
+        private long[] keys = new long[1024];
+        private long[] fingerprints = new long[1024];
+        private int size;
+        private int maxLength;
+
+        void add(CharSequence word) {
+            if (size == keys.length) {
+                if (size > Integer.MAX_VALUE / 2) {
+                    throw new IllegalStateException("Too many words for one dictionary");
+                }
+                keys = Arrays.copyOf(keys, size * 2);
+                fingerprints = Arrays.copyOf(fingerprints, size * 2);
+            }
+            keys[size] = hash(word, KEY_SEED);
+            fingerprints[size] = fingerprint(word);
+            maxLength = Math.max(maxLength, word.length());
+            size++;
+        }
+
+        WeakPasswordDictionary build(long startNanos) {
+            int bucketCount = Math.max(1, (size + WORDS_PER_BUCKET - 1) / WORDS_PER_BUCKET);
+            long slotCount = Math.max(1, (long) Math.ceil(size / LOAD_FACTOR));
+            if (slotCount > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("Too many words for one dictionary");
+            }
+
+            // Group word indexes by bucket (counting sort), dropping duplicates
+            int[] bucketStart = new int[bucketCount + 1];
+            for (int i = 0; i < size; i++) {
+                bucketStart[(int) bucketOf(keys[i], bucketCount) + 1]++;
+            }
+            for (int b = 0; b < bucketCount; b++) {
+                bucketStart[b + 1] += bucketStart[b];
+            }
+            int[] members = new int[size];
+            int[] fill = Arrays.copyOf(bucketStart, bucketCount);
+            for (int i = 0; i < size; i++) {
+                members[fill[(int) bucketOf(keys[i], bucketCount)]++] = i;
+            }
+            int[] bucketSize = new int[bucketCount];
+            int largest = 0;
+            int distinct = 0;
+            for (int b = 0; b < bucketCount; b++) {
+                int from = bucketStart[b];
+                int n = 0;
+                for (int j = from; j < bucketStart[b + 1]; j++) {
+                    if (!containsKey(members, from, from + n, keys[members[j]])) {
+                        members[from + n++] = members[j];
+                    }
+                }
+                bucketSize[b] = n;
+                largest = Math.max(largest, n);
+                distinct += n;
+            }
+
+            // Place the largest buckets first, while the table is still empty
+            int[] order = new int[bucketCount];
+            int[] sizeStart = new int[largest + 2];
+            for (int b = 0; b < bucketCount; b++) {
+                sizeStart[largest - bucketSize[b] + 1]++;
+            }
+            for (int s = 0; s <= largest; s++) {
+                sizeStart[s + 1] += sizeStart[s];
+            }
+            for (int b = 0; b < bucketCount; b++) {
+                order[sizeStart[largest - bucketSize[b]]++] = b;
+            }
+
+            long[] positions = new long[largest];
+            for (long seed = 0; ; seed++) {
+                int[] pilots = new int[bucketCount];
+                long[] table = new long[(int) slotCount];
+                if (place(order, bucketStart, bucketSize, members, pilots, table, positions, seed, slotCount)) {
+                    Table heap = new Table() {
+                        @Override
+                        public int pilot(long bucket) {
+                            return pilots[(int) bucket];
+                        }
+
+                        @Override
+                        public long fingerprint(long slot) {
+                            return table[(int) slot];
+                        }
+                    };
+                    return new WeakPasswordDictionary(heap, null, distinct, bucketCount, slotCount, seed,
+                                                      maxLength, System.nanoTime() - startNanos);
+                }
+            }
+        }
+
+        private boolean place(int[] order, int[] bucketStart, int[] bucketSize, int[] members, int[] pilots,
+                              long[] table, long[] positions, long seed, long slotCount) {
+            for (int b : order) {
+                int n = bucketSize[b];
+                if (n == 0) {
+                    break;
+                }
+                int from = bucketStart[b];
+                int pilot = 0;
+                search:
+                for (; ; pilot++) {
+                    if (pilot == MAX_PILOT) {
+                        return false;
+                    }
+                    for (int j = 0; j < n; j++) {
+                        long slot = slotOf(keys[members[from + j]], pilot, seed, slotCount);
+                        if (table[(int) slot] != 0) {
+                            continue search;
+                        }
+                        for (int k = 0; k < j; k++) {
+                            if (positions[k] == slot) {
+                                continue search;
+                            }
+                        }
+                        positions[j] = slot;
+                    }
+                    break;
+                }
+                for (int j = 0; j < n; j++) {
+                    table[(int) positions[j]] = fingerprints[members[from + j]];
+                }
+                pilots[b] = pilot;
+            }
+            return true;
+        }
+
+        private boolean containsKey(int[] members, int from, int to, long key) {
+            for (int j = from; j < to; j++) {
+                if (keys[members[j]] == key) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: java WeakPasswordDictionary <word-list> <dictionary-file>");
+            System.exit(2);
+        }
+        Path wordList = Paths.get(args[0]);
+        Path output = Paths.get(args[1]);
+
+        long wordListBytes = Files.size(wordList);
+        try (WeakPasswordDictionary built = load(wordList)) {
+            long start = System.nanoTime();
+            built.save(output);
+            double saveMillis = (System.nanoTime() - start) / 1e6;
+            System.out.println("Words:         " + built.size());
+            System.out.println("Build time:    " + String.format("%.1f", built.getLoadMillis()) + " ms (+ "
+                               + String.format("%.1f", saveMillis) + " ms to write)");
+        }
+        try (WeakPasswordDictionary dictionary = open(output)) {
+            System.out.println("Dictionary:    " + dictionary.getSizeBytes() + " bytes ("
+                               + String.format("%.2f", (double) dictionary.getSizeBytes() / Math.max(1, dictionary.size()))
+                               + " bytes/word; word list is " + wordListBytes + " bytes)");
+            System.out.println("Open time:     " + String.format("%.2f", dictionary.getLoadMillis()) + " ms");
+        }
+    }
+}
@@ -0,0 +1,79 @@
+import java.nio.ByteBuffer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntBiFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Hands the analyzer and breach-lookup hot paths to the JMH benchmarks.
+ *
+ * JMH refuses benchmark classes in the default package, and a class in a
+ * named package cannot import the default-package classes of this project.
+ * The benchmarks therefore load this class by name and receive each hot
+ * path as a JDK functional interface. The call is a monomorphic interface
+ * call that the JIT inlines, so it adds nothing measurable.
+ *
+ * Each instance keeps its own scratch state and belongs to one benchmark
+ * thread.
+ */
+public class BenchmarkTargets implements Function<String, Object> {
+    private final PasswordStrengthAnalyzer analyzer = new PasswordStrengthAnalyzer();
+    private final DictionaryWords dictionaryWords = DictionaryWords.fromConfiguration();
+    private final CharacterProfile profile = new CharacterProfile();
+
+    /**
+     * Look up a hot path by name
+     * @param name Target name, see the cases below
+     * @return The target as a functional interface
+     */
+    @Override
+    public Object apply(String name) {
+        switch (name) {
+            // Whole analysis of one password
+            case "analyzePassword":
+                return (Function<String, Object>) analyzer::analyzePassword;
+            // Character profile scan plus the entropy estimate derived from it
+            case "calculateEntropy":
+                return (ToDoubleFunction<String>) password -> analyzer.calculateEntropy(profile.reset(password));
+            // Both automaton scans plus the repeat check from the profile
+            case "hasCommonPatterns":
+                return (ToIntFunction<String>) password -> {
+                    CharacterProfile scanned = profile.reset(password);
+                    return analyzer.hasCommonPatterns(CommonPatterns.scan(password),
+                                                      dictionaryWords.scan(password), scanned) ? 1 : 0;
+                };
+            case "commonPatterns":
+                return (ToIntFunction<String>) CommonPatterns::scan;
+            case "dictionaryWords":
+                return (ToIntFunction<String>) dictionaryWords::scan;
+            case "weakDictionary":
+                return (Predicate<String>) analyzer.getWeakPasswords()::contains;
+            // SHA-1 of the UTF-8 password, as sent to the range API
+            case "sha1":
+                return (Function<String, Object>) Sha1Hasher::sha1;
+            // Range body as text, as handed over by callers holding a String
+            case "parseRangeText":
+                return (Function<String, Object>) RangeData::parse;
+            // Range body as network buffers, as the HTTP client delivers it for caching
+            case "parseRangeBuffer":
+                return (Function<ByteBuffer, Object>) body -> {
+                    RangeData.Builder builder = new RangeData.Builder();
+                    builder.accept(body);
+                    return builder.build();
+                };
+            // Streaming single-hash search, used when the range cache is disabled
+            case "searchRangeBuffer":
+                return (ToIntBiFunction<ByteBuffer, byte[]>) (body, hash) -> {
+                    RangeData.Search search = new RangeData.Search(hash, 0);
+                    search.accept(body);
+                    return search.getCount();
+                };
+            // Lookup in an already parsed (cached) range
+            case "findInRange":
+                return (ToIntBiFunction<Object, byte[]>) (range, hash) -> ((RangeData) range).find(hash, 0);
+            default:
+                throw new IllegalArgumentException("Unknown benchmark target: " + name);
+        }
+    }
+}
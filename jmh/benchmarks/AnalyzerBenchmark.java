@@ -0,0 +1,92 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Password analysis hot paths. Every invocation takes the next password
+ * from the corpus, so branch prediction and the caches see the same mix
+ * of short, long, weak and random passwords as a real audit.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AnalyzerBenchmark {
+    private String[] passwords;
+    private int next;
+
+    private Function<String, Object> analyzePassword;
+    private ToDoubleFunction<String> calculateEntropy;
+    private ToIntFunction<String> hasCommonPatterns;
+    private ToIntFunction<String> commonPatterns;
+    private ToIntFunction<String> dictionaryWords;
+    private Predicate<String> weakDictionary;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        passwords = Fixtures.passwords();
+        Function<String, Object> targets = Fixtures.targets();
+        analyzePassword = (Function<String, Object>) targets.apply("analyzePassword");
+        calculateEntropy = (ToDoubleFunction<String>) targets.apply("calculateEntropy");
+        hasCommonPatterns = (ToIntFunction<String>) targets.apply("hasCommonPatterns");
+        commonPatterns = (ToIntFunction<String>) targets.apply("commonPatterns");
+        dictionaryWords = (ToIntFunction<String>) targets.apply("dictionaryWords");
+        weakDictionary = (Predicate<String>) targets.apply("weakDictionary");
+    }
+
+    private String nextPassword() {
+        String password = passwords[next];
+        if (++next == passwords.length) {
+            next = 0;
+        }
+        return password;
+    }
+
+    @Benchmark
+    public Object analyzePassword() {
+        return analyzePassword.apply(nextPassword());
+    }
+
+    @Benchmark
+    public double calculateEntropy() {
+        return calculateEntropy.applyAsDouble(nextPassword());
+    }
+
+    @Benchmark
+    public int hasCommonPatterns() {
+        return hasCommonPatterns.applyAsInt(nextPassword());
+    }
+
+    @Benchmark
+    public int commonPatterns() {
+        return commonPatterns.applyAsInt(nextPassword());
+    }
+
+    @Benchmark
+    public int dictionaryWords() {
+        return dictionaryWords.applyAsInt(nextPassword());
+    }
+
+    @Benchmark
+    public boolean weakDictionary() {
+        return weakDictionary.test(nextPassword());
+    }
+}
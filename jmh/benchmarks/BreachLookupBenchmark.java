@@ -0,0 +1,156 @@
+package benchmarks;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.ToIntBiFunction;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Breach lookup hot paths: hashing a password, turning a recorded range
+ * body into range data, and finding one hash in a range, both streamed and
+ * in an already cached range.
+ *
+ * Lookups cycle through hashes taken from evenly spaced lines of each
+ * recorded range, so they measure the average position of a hit.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BreachLookupBenchmark {
+    // Hashes looked up per recorded range
+    private static final int TARGETS_PER_RANGE = 16;
+
+    private String[] passwords;
+    private int nextPassword;
+
+    private String[] rangeTexts;
+    private ByteBuffer[] rangeBuffers;
+    private Object[] parsedRanges;
+    private int nextRange;
+
+    // Target hashes, TARGETS_PER_RANGE per range, with the range they belong to
+    private byte[][] targetHashes;
+    private int[] targetRanges;
+    private int nextTarget;
+
+    private Function<String, Object> sha1;
+    private Function<String, Object> parseRangeText;
+    private Function<ByteBuffer, Object> parseRangeBuffer;
+    private ToIntBiFunction<ByteBuffer, byte[]> searchRangeBuffer;
+    private ToIntBiFunction<Object, byte[]> findInRange;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        Function<String, Object> targets = Fixtures.targets();
+        sha1 = (Function<String, Object>) targets.apply("sha1");
+        parseRangeText = (Function<String, Object>) targets.apply("parseRangeText");
+        parseRangeBuffer = (Function<ByteBuffer, Object>) targets.apply("parseRangeBuffer");
+        searchRangeBuffer = (ToIntBiFunction<ByteBuffer, byte[]>) targets.apply("searchRangeBuffer");
+        findInRange = (ToIntBiFunction<Object, byte[]>) targets.apply("findInRange");
+
+        passwords = Fixtures.passwords();
+
+        List<Fixtures.Range> ranges = Fixtures.ranges();
+        rangeTexts = new String[ranges.size()];
+        rangeBuffers = new ByteBuffer[ranges.size()];
+        parsedRanges = new Object[ranges.size()];
+        targetHashes = new byte[ranges.size() * TARGETS_PER_RANGE][];
+        targetRanges = new int[targetHashes.length];
+        for (int r = 0; r < ranges.size(); r++) {
+            Fixtures.Range range = ranges.get(r);
+            rangeTexts[r] = new String(range.body, StandardCharsets.ISO_8859_1);
+            rangeBuffers[r] = ByteBuffer.wrap(range.body);
+            parsedRanges[r] = parseRangeBuffer.apply(rangeBuffers[r]);
+
+            String[] lines = rangeTexts[r].split("\r?\n");
+            for (int t = 0; t < TARGETS_PER_RANGE; t++) {
+                String line = lines[(int) ((t + 0.5) * lines.length / TARGETS_PER_RANGE)];
+                int index = r * TARGETS_PER_RANGE + t;
+                targetHashes[index] = hexToBytes(range.prefix + line.substring(0, line.indexOf(':')));
+                targetRanges[index] = r;
+            }
+        }
+        // Confirm the targets are hits, or the lookups would measure misses
+        for (int i = 0; i < targetHashes.length; i++) {
+            if (findInRange.applyAsInt(parsedRanges[targetRanges[i]], targetHashes[i]) <= 0) {
+                throw new IllegalStateException("Lookup target missing from its range");
+            }
+        }
+    }
+
+    private static byte[] hexToBytes(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        }
+        return bytes;
+    }
+
+    private int nextRange() {
+        int range = nextRange;
+        if (++nextRange == rangeTexts.length) {
+            nextRange = 0;
+        }
+        return range;
+    }
+
+    private int nextTarget() {
+        int target = nextTarget;
+        if (++nextTarget == targetHashes.length) {
+            nextTarget = 0;
+        }
+        return target;
+    }
+
+    @Benchmark
+    public Object sha1() {
+        String password = passwords[nextPassword];
+        if (++nextPassword == passwords.length) {
+            nextPassword = 0;
+        }
+        return sha1.apply(password);
+    }
+
+    @Benchmark
+    public Object parseRangeText() {
+        return parseRangeText.apply(rangeTexts[nextRange()]);
+    }
+
+    @Benchmark
+    public Object parseRangeBuffer() {
+        ByteBuffer body = rangeBuffers[nextRange()];
+        body.rewind();
+        return parseRangeBuffer.apply(body);
+    }
+
+    @Benchmark
+    public int searchRangeBuffer() {
+        int target = nextTarget();
+        ByteBuffer body = rangeBuffers[targetRanges[target]];
+        body.rewind();
+        return searchRangeBuffer.applyAsInt(body, targetHashes[target]);
+    }
+
+    @Benchmark
+    public int findInRange() {
+        int target = nextTarget();
+        return findInRange.applyAsInt(parsedRanges[targetRanges[target]], targetHashes[target]);
+    }
+}
@@ -0,0 +1,88 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Benchmark inputs and the bridge to the application classes.
+ *
+ * Inputs live under jmh/data (override with -Dbench.data=DIR):
+ * passwords.txt is a mixed corpus of weak, leetspeak, keyboard-walk,
+ * passphrase, random and non-ASCII passwords, one per line, UTF-8.
+ * ranges/PREFIX.txt are range bodies in the exact shape the API returns
+ * (sorted uppercase suffixes, CRLF line ends). Add more recordings with
+ * {@code curl https://api.pwnedpasswords.com/range/PREFIX > ranges/PREFIX.txt}.
+ */
+final class Fixtures {
+    private static final Path DATA = Paths.get(System.getProperty("bench.data", "jmh/data"));
+
+    private Fixtures() {
+    }
+
+    /**
+     * @return A fresh set of hot-path targets for one benchmark thread
+     */
+    @SuppressWarnings("unchecked")
+    static Function<String, Object> targets() {
+        try {
+            return (Function<String, Object>) Class.forName("BenchmarkTargets")
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Application classes are not on the benchmark classpath", e);
+        }
+    }
+
+    /**
+     * @return The password corpus, in file order
+     */
+    static String[] passwords() {
+        try {
+            List<String> lines = Files.readAllLines(DATA.resolve("passwords.txt"), StandardCharsets.UTF_8);
+            lines.removeIf(String::isEmpty);
+            return lines.toArray(new String[0]);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return Every recorded range body, as raw bytes
+     */
+    static List<Range> ranges() {
+        List<Range> ranges = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(DATA.resolve("ranges"), "*.txt")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                ranges.add(new Range(name.substring(0, name.length() - 4), Files.readAllBytes(file)));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (ranges.isEmpty()) {
+            throw new IllegalStateException("No range bodies in " + DATA.resolve("ranges"));
+        }
+        ranges.sort((a, b) -> a.prefix.compareTo(b.prefix));
+        return ranges;
+    }
+
+    /**
+     * A recorded range body and the 5-digit prefix it was fetched for
+     */
+    static final class Range {
+        final String prefix;
+        final byte[] body;
+
+        Range(String prefix, byte[] body) {
+            this.prefix = prefix;
+            this.body = body;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bulk audit against a {@link HibpStandIn} that pushes back.
+ *
+ * Checks a batch of passwords with {@link HIBPClient#getBreachInfoAll}
+ * while the stand-in answers 503 beyond a number of requests in flight
+ * and, optionally, 429 beyond a request rate. Prints lookups per second,
+ * how often the stand-in throttled, the transport's retries, the
+ * passwords left without an answer and the concurrency limit the
+ * transport ended on. Run it with -Dhibp.http.adaptiveConcurrency=false
+ * to compare against a fixed limit.
+ *
+ * Settings (system properties):
+ *   load.count            passwords to check (default 5000), derived from load.passwords
+ *   load.passwords        base corpus (default jmh/data/passwords.txt)
+ *   load.batchThreads     groups resolved in parallel (default 64)
+ *   load.maxInFlight      stand-in requests served at once (default 6)
+ *   load.maxPerSecond     stand-in requests served per second (default 0: unlimited)
+ *   load.upstreamDelayMs  stand-in response delay (default 20)
+ *
+ * The hibp.http.* and hibp.circuit.* properties apply to the client as usual.
+ */
+public class BulkBreachLoadTest {
+    public static void main(String[] args) throws Exception {
+        int count = Integer.getInteger("load.count", 5000);
+        List<String> corpus = Files.readAllLines(
+                Paths.get(System.getProperty("load.passwords", "jmh/data/passwords.txt")), StandardCharsets.UTF_8);
+        corpus.removeIf(String::isEmpty);
+        // A run-specific suffix keeps every prefix a cache miss
+        String run = Long.toHexString(System.nanoTime());
+        List<String> passwords = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            passwords.add(corpus.get(i % corpus.size()) + run + i);
+        }
+
+        try (HibpStandIn standIn = new HibpStandIn(passwords.subList(0, count / 2),
+                                                   Long.getLong("load.upstreamDelayMs", 20))) {
+            standIn.limitConcurrency(Integer.getInteger("load.maxInFlight", 6));
+            int maxPerSecond = Integer.getInteger("load.maxPerSecond", 0);
+            if (maxPerSecond > 0) {
+                standIn.limitRate(maxPerSecond);
+            }
+            standIn.start(0);
+            HIBPTransport transport = HIBPTransport.fromConfiguration(standIn.getApiUrl());
+            HIBPClient client = HIBPClient.builder()
+                    .rangeCache(RangeCache.fromConfiguration())
+                    .transport(transport)
+                    .circuitBreaker(CircuitBreaker.fromConfiguration())
+                    .build();
+            LongAdder retries = Metrics.global().counter(
+                    "hibp_retries", "Range requests retried after throttling or a transient failure");
+            System.err.println("Bulk audit: " + count + " passwords, transport limit "
+                               + transport.getMaxConcurrentRequests()
+                               + (transport.isAdaptiveConcurrency() ? " (adaptive)" : " (fixed)")
+                               + ", stand-in serves " + Integer.getInteger("load.maxInFlight", 6) + " at once"
+                               + (maxPerSecond > 0 ? " and " + maxPerSecond + "/s" : ""));
+
+            long start = System.nanoTime();
+            BatchBreachResult result = client.getBreachInfoAll(passwords, Integer.getInteger("load.batchThreads", 64));
+            double seconds = (System.nanoTime() - start) / (double) TimeUnit.SECONDS.toNanos(1);
+
+            long breached = 0;
+            for (int i = 0; i < result.size(); i++) {
+                if (result.get(i) != null && result.get(i).isPwned()) {
+                    breached++;
+                }
+            }
+            System.err.println(String.format("Lookups:   %,d in %.2f s = %,.0f lookups/s (%,d breached, %,d failed)",
+                                             count, seconds, count / seconds, breached, result.getFailed()));
+            System.err.println(String.format("Upstream:  %,d requests, %,d throttled (429/503), %,d retries",
+                                             standIn.getRequests(), standIn.getThrottled(), retries.sum()));
+            System.err.println(String.format("Transport: concurrency limit %d of %d, circuit %s",
+                                             transport.getConcurrencyLimit(), transport.getMaxConcurrentRequests(),
+                                             client.getCircuitBreaker().getState()));
+        }
+        System.exit(0);
+    }
+}
@@ -0,0 +1,198 @@
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local stand-in for the HIBP range API, for load tests that must not hit
+ * the real service.
+ *
+ * Every prefix answers like the real API: about 800 sorted SUFFIX:COUNT
+ * lines separated by CRLF. The filler suffixes are random but fixed per
+ * prefix, and the hashes of the given passwords are mixed in, so those
+ * passwords come back as breached. An optional delay stands in for the
+ * round-trip to the real API.
+ *
+ * It can also push back like a loaded server: beyond a number of requests
+ * in flight it answers 503, and beyond a number of requests per second it
+ * answers 429 with Retry-After: 1.
+ *
+ * Usage: java HibpStandIn [port [passwords-file [delay-ms]]]
+ */
+public class HibpStandIn implements AutoCloseable {
+    private static final int FILLER_LINES = 800;
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    private final Map<String, List<String>> known = new HashMap<>();
+    private final Map<String, byte[]> bodies = new ConcurrentHashMap<>();
+    private final long delayMillis;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong window = new AtomicLong();
+    private final AtomicInteger windowRequests = new AtomicInteger();
+    private volatile int maxInFlight = Integer.MAX_VALUE;
+    private volatile int maxPerSecond = Integer.MAX_VALUE;
+    private final ExecutorService executor = ScoringService.requestExecutor(256);
+    private HttpServer server;
+
+    /**
+     * @param breached Passwords that should come back as breached
+     * @param delayMillis Time to wait before answering each request
+     */
+    public HibpStandIn(List<String> breached, long delayMillis) {
+        this.delayMillis = delayMillis;
+        for (String password : breached) {
+            String hex = Sha1Hasher.toHex(Sha1Hasher.sha1(password), 0);
+            int count = 1 + (hex.hashCode() & 0xFFFF);
+            known.computeIfAbsent(hex.substring(0, 5), p -> new ArrayList<>())
+                 .add(hex.substring(5) + ":" + count);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8090;
+        List<String> breached = args.length > 1
+                ? Files.readAllLines(Paths.get(args[1]), StandardCharsets.UTF_8) : Collections.emptyList();
+        HibpStandIn standIn = new HibpStandIn(breached, args.length > 2 ? Long.parseLong(args[2]) : 0);
+        standIn.start(port);
+        System.err.println("HIBP stand-in at " + standIn.getApiUrl());
+    }
+
+    /**
+     * @param port TCP port to listen on (0 for any free port)
+     * @throws IOException if the port cannot be bound
+     */
+    public void start(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 1024);
+        server.createContext("/range/", exchange -> {
+            requests.increment();
+            String prefix = exchange.getRequestURI().getPath().substring("/range/".length()).toUpperCase();
+            if (prefix.length() != 5 || !prefix.chars().allMatch(c -> Character.digit(c, 16) >= 0)) {
+                exchange.sendResponseHeaders(400, -1);
+                exchange.close();
+                return;
+            }
+            if (!withinRate()) {
+                throttled.increment();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                exchange.sendResponseHeaders(429, -1);
+                exchange.close();
+                return;
+            }
+            try {
+                if (inFlight.incrementAndGet() > maxInFlight) {
+                    throttled.increment();
+                    exchange.sendResponseHeaders(503, -1);
+                    exchange.close();
+                    return;
+                }
+                if (delayMillis > 0) {
+                    try {
+                        Thread.sleep(delayMillis);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                byte[] body = bodies.computeIfAbsent(prefix, this::range);
+                exchange.getResponseHeaders().set("Content-Type", "text/plain");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        });
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * Answer 503 to requests beyond this many in flight
+     * @param maxInFlight Requests served at once
+     */
+    public void limitConcurrency(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Answer 429 with Retry-After: 1 to requests beyond this many per second
+     * @param maxPerSecond Requests served per one-second window
+     */
+    public void limitRate(int maxPerSecond) {
+        this.maxPerSecond = maxPerSecond;
+    }
+
+    // Fixed one-second windows: count this request against the current one
+    private boolean withinRate() {
+        if (maxPerSecond == Integer.MAX_VALUE) {
+            return true;
+        }
+        long second = System.nanoTime() / 1_000_000_000L;
+        long current = window.get();
+        if (current != second && window.compareAndSet(current, second)) {
+            windowRequests.set(0);
+        }
+        return windowRequests.incrementAndGet() <= maxPerSecond;
+    }
+
+    /**
+     * @return Base URL to use as hibp.apiUrl
+     */
+    public String getApiUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/range/";
+    }
+
+    /**
+     * @return Range requests answered so far
+     */
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    /**
+     * @return Requests answered with 429 or 503
+     */
+    public long getThrottled() {
+        return throttled.sum();
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+        }
+        executor.shutdownNow();
+    }
+
+    private byte[] range(String prefix) {
+        Random random = new Random(prefix.hashCode());
+        List<String> lines = new ArrayList<>(FILLER_LINES + 4);
+        char[] suffix = new char[35];
+        for (int i = 0; i < FILLER_LINES; i++) {
+            for (int j = 0; j < suffix.length; j++) {
+                suffix[j] = HEX_DIGITS[random.nextInt(16)];
+            }
+            lines.add(new String(suffix) + ":" + (1 + random.nextInt(50)));
+        }
+        lines.addAll(known.getOrDefault(prefix, Collections.emptyList()));
+        Collections.sort(lines);
+        return String.join("\r\n", lines).getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,181 @@
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Load test for {@link ScoringService} against a local {@link HibpStandIn}.
+ *
+ * Starts the stand-in and the service in this JVM, then drives the service
+ * from keep-alive connections, each sending its next request as soon as
+ * the previous response arrives. Prints throughput and client-side latency
+ * percentiles, the server's own request histogram, and how many range
+ * requests reached the stand-in.
+ *
+ * Settings (system properties):
+ *   load.mode         analyze, breach or mixed (default mixed: every 4th request also checks breaches)
+ *   load.connections  concurrent connections (default 64)
+ *   load.seconds      measured duration (default 10), after load.warmupSeconds (default 3)
+ *   load.passwords    request corpus (default jmh/data/passwords.txt), every other one breached
+ *   load.upstreamDelayMs  stand-in response delay (default 20)
+ *
+ * The hibp.cache.* and hibp.http.* properties apply to the service's client
+ * as usual; -Dhibp.cache.maxBytes=0 sends every breach check upstream.
+ */
+public class ScoringLoadTest {
+    public static void main(String[] args) throws Exception {
+        String mode = System.getProperty("load.mode", "mixed");
+        int connections = Integer.getInteger("load.connections", 64);
+        int seconds = Integer.getInteger("load.seconds", 10);
+        int warmupSeconds = Integer.getInteger("load.warmupSeconds", 3);
+        List<String> passwords = Files.readAllLines(
+                Paths.get(System.getProperty("load.passwords", "jmh/data/passwords.txt")), StandardCharsets.UTF_8);
+        passwords.removeIf(String::isEmpty);
+
+        List<String> breached = new ArrayList<>();
+        for (int i = 0; i < passwords.size(); i += 2) {
+            breached.add(passwords.get(i));
+        }
+        try (HibpStandIn standIn = new HibpStandIn(breached, Long.getLong("load.upstreamDelayMs", 20))) {
+            standIn.start(0);
+            HIBPClient client = HIBPClient.builder()
+                    .rangeCache(RangeCache.fromConfiguration())
+                    .transport(HIBPTransport.fromConfiguration(standIn.getApiUrl()))
+                    .build();
+            client.registerMetrics();
+            try (ScoringService service = new ScoringService(new PasswordStrengthAnalyzer(), client,
+                    ScoringService.requestExecutor(Integer.getInteger("scoring.threads",
+                                                                      ScoringService.DEFAULT_PLATFORM_THREADS)))) {
+                service.start(0);
+                System.err.println("Load test: " + mode + ", " + connections + " connections, "
+                                   + Runtime.getRuntime().availableProcessors() + " CPUs, "
+                                   + passwords.size() + " passwords");
+                byte[][] requests = requests(passwords, mode);
+
+                run(service.getPort(), requests, connections, warmupSeconds, null);
+                LatencyHistogram latency = new LatencyHistogram("client");
+                long upstreamBefore = standIn.getRequests();
+                LatencyHistogram.Snapshot serverBefore = Metrics.global().histogram("request").snapshot();
+                long[] result = run(service.getPort(), requests, connections, seconds, latency);
+                long upstream = standIn.getRequests() - upstreamBefore;
+                long serverCount = Metrics.global().histogram("request").snapshot().getCount()
+                                   - serverBefore.getCount();
+
+                LatencyHistogram.Snapshot observed = latency.snapshot();
+                System.err.println(String.format("Requests: %,d in %d s = %,.0f req/s (%,d errors)",
+                                                 result[0], seconds, result[0] / (double) seconds, result[1]));
+                System.err.println(String.format("Latency:  p50 %.2f ms, p99 %.2f ms, p99.9 %.2f ms, max %.2f ms",
+                                                 observed.getPercentile(50) / 1e6, observed.getPercentile(99) / 1e6,
+                                                 observed.getPercentile(99.9) / 1e6, observed.getMax() / 1e6));
+                System.err.println(String.format("Server:   %,d requests handled, upstream range requests: %,d",
+                                                 serverCount, upstream));
+            }
+        }
+        System.exit(0);
+    }
+
+    // One pre-encoded HTTP/1.1 request per password
+    private static byte[][] requests(List<String> passwords, String mode) {
+        byte[][] requests = new byte[passwords.size()][];
+        for (int i = 0; i < requests.length; i++) {
+            String path;
+            switch (mode) {
+                case "analyze": path = "/analyze"; break;
+                case "breach": path = "/breach"; break;
+                default: path = i % 4 == 0 ? "/analyze?breach=true" : "/analyze"; break;
+            }
+            StringBuilder json = new StringBuilder("{\"password\":");
+            ScoringService.appendString(json, passwords.get(i));
+            byte[] body = json.append('}').toString().getBytes(StandardCharsets.UTF_8);
+            byte[] head = ("POST " + path + " HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\n"
+                           + "Content-Length: " + body.length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+            requests[i] = new byte[head.length + body.length];
+            System.arraycopy(head, 0, requests[i], 0, head.length);
+            System.arraycopy(body, 0, requests[i], head.length, body.length);
+        }
+        return requests;
+    }
+
+    /**
+     * @return Completed requests and errors
+     */
+    private static long[] run(int port, byte[][] requests, int connections, int seconds,
+                              LatencyHistogram latency) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        LongAdder completed = new LongAdder();
+        LongAdder errors = new LongAdder();
+        Thread[] workers = new Thread[connections];
+        for (int w = 0; w < connections; w++) {
+            int first = w * (requests.length / connections + 1);
+            workers[w] = new Thread(() -> {
+                int next = first;
+                try (Socket socket = new Socket("127.0.0.1", port)) {
+                    socket.setTcpNoDelay(true);
+                    OutputStream out = socket.getOutputStream();
+                    InputStream in = new BufferedInputStream(socket.getInputStream());
+                    while (System.nanoTime() < deadline) {
+                        long start = System.nanoTime();
+                        out.write(requests[next++ % requests.length]);
+                        out.flush();
+                        if (readResponse(in) != 200) {
+                            errors.increment();
+                        }
+                        if (latency != null) {
+                            latency.recordSince(start);
+                        }
+                        completed.increment();
+                    }
+                } catch (IOException e) {
+                    errors.increment();
+                }
+            }, "load-" + w);
+            workers[w].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return new long[] {completed.sum(), errors.sum()};
+    }
+
+    // Reads one response with a Content-Length body and returns its status code
+    private static int readResponse(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder(64);
+        int status = -1;
+        int contentLength = 0;
+        while (true) {
+            line.setLength(0);
+            int c;
+            while ((c = in.read()) != '\n') {
+                if (c < 0) {
+                    throw new EOFException("Connection closed");
+                }
+                if (c != '\r') {
+                    line.append((char) c);
+                }
+            }
+            if (line.length() == 0) {
+                break;
+            }
+            if (status < 0) {
+                status = Integer.parseInt(line.substring(9, 12));
+            } else if (line.length() > 15 && line.substring(0, 15).equalsIgnoreCase("content-length:")) {
+                contentLength = Integer.parseInt(line.substring(15).trim());
+            }
+        }
+        for (int skipped = 0; skipped < contentLength; skipped++) {
+            if (in.read() < 0) {
+                throw new EOFException("Connection closed");
+            }
+        }
+        return status;
+    }
+}